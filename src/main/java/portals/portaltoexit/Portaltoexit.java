@@ -4,6 +4,10 @@ import org.bukkit.plugin.java.JavaPlugin;
 import portals.portaltoexit.commands.PortalCommand;
 import portals.portaltoexit.listeners.PortalCreationListener;
 import portals.portaltoexit.listeners.PortalInteractionListener;
+import portals.portaltoexit.listeners.OccupancyListener;
+import portals.portaltoexit.listeners.SafeLocationListener;
+import portals.portaltoexit.listeners.SessionListener;
+import portals.portaltoexit.listeners.WorldListener;
 import portals.portaltoexit.gui.GUIListener;
 import portals.portaltoexit.managers.*;
 import portals.portaltoexit.tasks.PortalParticleTask;
@@ -15,8 +19,16 @@ public class Portaltoexit extends JavaPlugin {
     private static Portaltoexit instance;
     private ConfigManager configManager;
     private PortalManager portalManager;
+    private PersistenceManager persistenceManager;
     private CooldownManager cooldownManager;
+    private SessionManager sessionManager;
     private TeleportationManager teleportationManager;
+    private ChunkPreloadManager chunkPreloadManager;
+    private HotExitManager hotExitManager;
+    private ArrivalSpreadManager arrivalSpreadManager;
+    private OccupancyManager occupancyManager;
+    private TeleportQueueManager teleportQueueManager;
+    private PortalDetectionManager portalDetectionManager;
     private EconomyManager economyManager;
     private KitManager kitManager;
     private PermissionManager permissionManager;
@@ -44,9 +56,17 @@ public class Portaltoexit extends JavaPlugin {
             configManager = new ConfigManager(this);
 
             // Initialize managers
-            cooldownManager = new CooldownManager(configManager);
+            cooldownManager = new CooldownManager(this);
+            sessionManager = new SessionManager(this);
+            persistenceManager = new PersistenceManager(this);
             portalManager = new PortalManager(this);
+            chunkPreloadManager = new ChunkPreloadManager(this);
+            hotExitManager = new HotExitManager(this);
+            arrivalSpreadManager = new ArrivalSpreadManager(this);
+            occupancyManager = new OccupancyManager(this);
             teleportationManager = new TeleportationManager(this);
+            teleportQueueManager = new TeleportQueueManager(this);
+            portalDetectionManager = new PortalDetectionManager(this);
 
             // Initialize economy (soft dependency)
             economyManager = new EconomyManager(this);
@@ -63,6 +83,9 @@ public class Portaltoexit extends JavaPlugin {
             // Load portal data
             portalManager.loadPortals();
 
+            // Restore cooldowns that were still running at the last shutdown
+            persistenceManager.loadCooldowns();
+
             // Register events
             registerEvents();
 
@@ -83,8 +106,26 @@ public class Portaltoexit extends JavaPlugin {
                 getLogger().info("[KaizenPortals] Exit point particles enabled");
             }
 
-            // Start auto-save task
-            portalManager.startAutoSave();
+            // Start write-behind saving
+            persistenceManager.start();
+
+            // Start keeping busy exit chunks loaded
+            hotExitManager.start();
+
+            // Start admitting queued portal teleports
+            teleportQueueManager.start();
+
+            // Start sweeping expired cooldowns
+            cooldownManager.start();
+
+            // Start sampling players near portals if sampled detection is configured
+            portalDetectionManager.start();
+
+            // Count players already online (reloads) for least-loaded exit selection
+            occupancyManager.trackOnlinePlayers();
+
+            // Open sessions for players already online (reloads)
+            sessionManager.trackOnlinePlayers();
 
             getLogger().info("[KaizenPortals] Enabled successfully!");
             getLogger().info("[KaizenPortals] Loaded " + portalManager.getPortalCount() + " portals");
@@ -110,9 +151,27 @@ public class Portaltoexit extends JavaPlugin {
             exitParticleTask.cancel();
         }
 
-        // Save portal data
-        if (portalManager != null) {
-            portalManager.savePortals();
+        if (teleportQueueManager != null) {
+            teleportQueueManager.shutdown();
+        }
+        if (portalDetectionManager != null) {
+            portalDetectionManager.shutdown();
+        }
+        if (cooldownManager != null) {
+            cooldownManager.shutdown();
+        }
+
+        // Let held destination chunks unload
+        if (hotExitManager != null) {
+            hotExitManager.shutdown();
+        }
+        if (chunkPreloadManager != null) {
+            chunkPreloadManager.releaseAll();
+        }
+
+        // Flush pending portal changes synchronously
+        if (persistenceManager != null) {
+            persistenceManager.shutdown();
         }
 
         // Save kit data
@@ -124,9 +183,13 @@ public class Portaltoexit extends JavaPlugin {
     }
 
     private void registerEvents() {
+        getServer().getPluginManager().registerEvents(new SessionListener(this), this);
         getServer().getPluginManager().registerEvents(new PortalCreationListener(this), this);
         getServer().getPluginManager().registerEvents(new PortalInteractionListener(this), this);
         getServer().getPluginManager().registerEvents(new GUIListener(this), this);
+        getServer().getPluginManager().registerEvents(new WorldListener(this), this);
+        getServer().getPluginManager().registerEvents(new SafeLocationListener(this), this);
+        getServer().getPluginManager().registerEvents(new OccupancyListener(this), this);
     }
 
     private void registerCommands() {
@@ -146,14 +209,46 @@ public class Portaltoexit extends JavaPlugin {
         return portalManager;
     }
 
+    public PersistenceManager getPersistenceManager() {
+        return persistenceManager;
+    }
+
     public CooldownManager getCooldownManager() {
         return cooldownManager;
     }
 
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
     public TeleportationManager getTeleportationManager() {
         return teleportationManager;
     }
 
+    public ChunkPreloadManager getChunkPreloadManager() {
+        return chunkPreloadManager;
+    }
+
+    public TeleportQueueManager getTeleportQueueManager() {
+        return teleportQueueManager;
+    }
+
+    public PortalDetectionManager getPortalDetectionManager() {
+        return portalDetectionManager;
+    }
+
+    public HotExitManager getHotExitManager() {
+        return hotExitManager;
+    }
+
+    public ArrivalSpreadManager getArrivalSpreadManager() {
+        return arrivalSpreadManager;
+    }
+
+    public OccupancyManager getOccupancyManager() {
+        return occupancyManager;
+    }
+
     public EconomyManager getEconomyManager() {
         return economyManager;
     }
@@ -1,5 +1,6 @@
 package portals.portaltoexit.commands;
 
+import org.bukkit.HeightMap;
 import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -7,9 +8,12 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.ExitPointIndex;
+import portals.portaltoexit.data.PluginSettings;
 import portals.portaltoexit.data.Portal;
 import portals.portaltoexit.gui.PortalWand;
 import portals.portaltoexit.gui.PortalListGUI;
+import portals.portaltoexit.utils.PortalConstants;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -17,6 +21,10 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class PortalCommand implements CommandExecutor, TabCompleter {
+    // Heightmaps the server keeps up to date after generation
+    private static final List<String> SURFACE_HEIGHT_MAPS = Arrays.asList(
+            "motion_blocking", "motion_blocking_no_leaves", "world_surface", "ocean_floor");
+
     private final Portaltoexit plugin;
 
     public PortalCommand(Portaltoexit plugin) {
@@ -69,10 +77,20 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
                 return handleRemoveExit(sender, args);
             case "listexits":
                 return handleListExits(sender, args);
+            case "nearexits":
+                return handleNearExits(sender, args);
+            case "setsearch":
+                return handleSetSearch(sender, args);
+            case "setspread":
+                return handleSetSpread(sender, args);
+            case "setweight":
+                return handleSetWeight(sender, args);
             case "reload":
                 return handleReload(sender, args);
             case "removeall":
                 return handleRemoveAll(sender, args);
+            case "migrate":
+                return handleMigrate(sender, args);
             case "wand":
                 return handleWand(sender, args);
             case "gui":
@@ -193,6 +211,9 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         player.sendMessage("§eLocation: §f" + String.format("%.0f, %.0f, %.0f", loc.getX(), loc.getY(), loc.getZ()));
         player.sendMessage("§eWorld: §f" + loc.getWorld().getName());
         player.sendMessage("§eExit Type: §f" + portal.getExitType().toString());
+        player.sendMessage("§eSafe Search: §f" + (portal.getSurfaceHeightMap() != null
+                ? portal.getSurfaceHeightMap().name().toLowerCase() : "cube"));
+        player.sendMessage("§eArrival Spread: §f" + portal.getArrivalSpread().getDescription());
         player.sendMessage("§eOwner: §f" + plugin.getServer().getOfflinePlayer(portal.getOwner()).getName());
 
         return true;
@@ -272,7 +293,7 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
                 player.sendMessage("§aPortal exit type set to: " + type.toString());
             }
 
-            plugin.getPortalManager().savePortals();
+            plugin.getPortalManager().markDirty(portal);
         } catch (IllegalArgumentException e) {
             player.sendMessage("§cInvalid exit type! Use: spawn, bed, or custom");
         }
@@ -280,6 +301,134 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleSetSearch(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("commands.player-only"));
+            return true;
+        }
+
+        if (args.length < 3) {
+            sender.sendMessage("§cUsage: /portal setsearch <name> <cube|" + String.join("|", SURFACE_HEIGHT_MAPS) + ">");
+            return true;
+        }
+
+        Player player = (Player) sender;
+        Portal portal = plugin.getPortalManager().getPortal(args[1]);
+        if (portal == null) {
+            player.sendMessage(plugin.getConfigManager().getMessage("portal-not-found", "{name}", args[1]));
+            return true;
+        }
+
+        // Check ownership
+        if (!portal.getOwner().equals(player.getUniqueId()) && !player.hasPermission("portal2exit.admin")) {
+            player.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return true;
+        }
+
+        String mode = args[2].toLowerCase();
+        if (mode.equals("cube")) {
+            portal.setSurfaceHeightMap(null);
+        } else if (SURFACE_HEIGHT_MAPS.contains(mode)) {
+            portal.setSurfaceHeightMap(HeightMap.valueOf(mode.toUpperCase()));
+        } else {
+            player.sendMessage("§cInvalid search mode! Use: cube, " + String.join(", ", SURFACE_HEIGHT_MAPS));
+            return true;
+        }
+
+        // Cached spots were resolved with the previous strategy
+        plugin.getTeleportationManager().getSafeLocationCache().clear();
+        plugin.getPortalManager().markDirty(portal);
+        player.sendMessage("§aSafe location search for " + portal.getName() + " set to: " + mode);
+        return true;
+    }
+
+    private boolean handleSetSpread(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("commands.player-only"));
+            return true;
+        }
+
+        if (args.length < 3) {
+            sender.sendMessage("§cUsage: /portal setspread <name> <off|round_robin|least_recent>");
+            return true;
+        }
+
+        Player player = (Player) sender;
+        Portal portal = plugin.getPortalManager().getPortal(args[1]);
+        if (portal == null) {
+            player.sendMessage(plugin.getConfigManager().getMessage("portal-not-found", "{name}", args[1]));
+            return true;
+        }
+
+        // Check ownership
+        if (!portal.getOwner().equals(player.getUniqueId()) && !player.hasPermission("portal2exit.admin")) {
+            player.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return true;
+        }
+
+        Portal.ArrivalSpread spread;
+        try {
+            spread = Portal.ArrivalSpread.valueOf(args[2].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            player.sendMessage("§cInvalid spread mode! Use: off, round_robin, least_recent");
+            return true;
+        }
+
+        portal.setArrivalSpread(spread);
+        plugin.getPortalManager().markDirty(portal);
+        player.sendMessage("§aArrival spread for " + portal.getName() + " set to: " + spread.name().toLowerCase());
+        return true;
+    }
+
+    private boolean handleSetWeight(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("commands.player-only"));
+            return true;
+        }
+
+        if (args.length < 4) {
+            sender.sendMessage("§cUsage: /portal setweight <name> <exit number> <weight>");
+            return true;
+        }
+
+        Player player = (Player) sender;
+        Portal portal = plugin.getPortalManager().getPortal(args[1]);
+        if (portal == null) {
+            player.sendMessage(plugin.getConfigManager().getMessage("portal-not-found", "{name}", args[1]));
+            return true;
+        }
+
+        // Check ownership
+        if (!portal.getOwner().equals(player.getUniqueId()) && !player.hasPermission("portal2exit.admin")) {
+            player.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return true;
+        }
+
+        int index;
+        double weight;
+        try {
+            index = Integer.parseInt(args[2]) - 1;
+            weight = Double.parseDouble(args[3]);
+        } catch (NumberFormatException e) {
+            player.sendMessage("§cExit number and weight must be numbers!");
+            return true;
+        }
+
+        if (index < 0 || index >= portal.getExitPoints().size()) {
+            player.sendMessage("§cInvalid exit number! See §e/portal listexits " + portal.getName());
+            return true;
+        }
+        if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+            player.sendMessage("§cWeight must be zero or more!");
+            return true;
+        }
+
+        portal.setExitWeight(index, weight);
+        plugin.getPortalManager().markDirty(portal);
+        player.sendMessage("§aWeight of exit " + (index + 1) + " for " + portal.getName() + " set to: " + weight);
+        return true;
+    }
+
     private boolean handleReload(CommandSender sender, String[] args) {
         if (!sender.hasPermission("portal2exit.admin")) {
             sender.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
@@ -287,7 +436,11 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         }
 
         plugin.getConfigManager().reload();
+        plugin.getPortalManager().savePortals();
         plugin.getPortalManager().loadPortals();
+        plugin.getTeleportationManager().getSafeLocationCache().clear();
+        plugin.getArrivalSpreadManager().clear();
+        plugin.getPortalDetectionManager().reload();
         sender.sendMessage(plugin.getConfigManager().getMessage("commands.reload-success"));
         return true;
     }
@@ -311,6 +464,37 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleMigrate(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("portal2exit.admin")) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return true;
+        }
+
+        List<String> types = PluginSettings.STORAGE_TYPES;
+        if (args.length < 3 || !types.contains(args[1].toLowerCase()) || !types.contains(args[2].toLowerCase())) {
+            sender.sendMessage("§cUsage: /portal migrate <from> <to>");
+            sender.sendMessage("§7Storage types: §e" + String.join("§7, §e", types));
+            return true;
+        }
+
+        String from = args[1].toLowerCase();
+        String to = args[2].toLowerCase();
+        if (from.equals(to)) {
+            sender.sendMessage("§cSource and target storage must be different!");
+            return true;
+        }
+        if (!from.equals("sqlite") && !to.equals("sqlite")) {
+            // Both keep their snapshots in the same per-world files, so there is nothing to copy
+            sender.sendMessage("§cyaml and journal storage share the same files; just change §estorage.type§c in config.yml.");
+            return true;
+        }
+
+        sender.sendMessage("§7Migrating portals from §e" + from + "§7 to §e" + to + "§7...");
+        plugin.getPersistenceManager().migrate(from, to, sender);
+        sender.sendMessage("§7Set §estorage.type: " + to + "§7 in config.yml and restart to use the new storage.");
+        return true;
+    }
+
     private boolean handleAddExit(CommandSender sender, String[] args) {
         if (!(sender instanceof Player)) {
             sender.sendMessage(plugin.getConfigManager().getMessage("commands.player-only"));
@@ -339,7 +523,7 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
 
         // Add current location as exit point
         portal.addExitPoint(player.getLocation());
-        plugin.getPortalManager().savePortals();
+        plugin.getPortalManager().markDirty(portal);
 
         player.sendMessage("§aAdded exit point at your current location!");
         player.sendMessage("§7Portal now has §e" + portal.getExitPoints().size() + "§7 exit point(s).");
@@ -358,20 +542,20 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
             // Remove nearest exit point
             sender.sendMessage("§7Looking for nearby exit points...");
 
-            for (Portal portal : plugin.getPortalManager().getAllPortals()) {
-                Location nearest = portal.getNearestExitPoint(player.getLocation());
-                if (nearest != null && nearest.distance(player.getLocation()) < 5) {
-                    // Check ownership
-                    if (!portal.getOwner().equals(player.getUniqueId()) && !player.hasPermission("portal2exit.admin")) {
-                        player.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
-                        return true;
-                    }
-
-                    portal.removeExitPoint(nearest);
-                    plugin.getPortalManager().savePortals();
-                    player.sendMessage("§aRemoved nearby exit point from portal §e" + portal.getName());
+            ExitPointIndex.Entry nearest = plugin.getPortalManager().getExitPointIndex()
+                    .findNearest(player.getLocation(), 5, null);
+            if (nearest != null) {
+                Portal portal = nearest.getPortal();
+                // Check ownership
+                if (!portal.getOwner().equals(player.getUniqueId()) && !player.hasPermission("portal2exit.admin")) {
+                    player.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
                     return true;
                 }
+
+                portal.removeExitPoint(nearest.getLocation());
+                plugin.getPortalManager().markDirty(portal);
+                player.sendMessage("§aRemoved nearby exit point from portal §e" + portal.getName());
+                return true;
             }
             player.sendMessage("§cNo exit points found within 5 blocks!");
         } else {
@@ -391,10 +575,11 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
             }
 
             // Remove nearest exit point to player
-            Location nearest = portal.getNearestExitPoint(player.getLocation());
-            if (nearest != null && nearest.distance(player.getLocation()) < 10) {
-                portal.removeExitPoint(nearest);
-                plugin.getPortalManager().savePortals();
+            ExitPointIndex.Entry nearest = plugin.getPortalManager().getExitPointIndex()
+                    .findNearest(player.getLocation(), 10, portal);
+            if (nearest != null) {
+                portal.removeExitPoint(nearest.getLocation());
+                plugin.getPortalManager().markDirty(portal);
                 player.sendMessage("§aRemoved exit point from portal §e" + portal.getName());
             } else {
                 player.sendMessage("§cNo exit points found within 10 blocks for this portal!");
@@ -404,6 +589,55 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleNearExits(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player)) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("commands.player-only"));
+            return true;
+        }
+
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /portal nearexits <radius>");
+            return true;
+        }
+
+        double radius;
+        try {
+            radius = Double.parseDouble(args[1]);
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cRadius must be a number!");
+            return true;
+        }
+        if (radius < 1 || radius > PortalConstants.MAX_NEAR_EXITS_RADIUS) {
+            sender.sendMessage(String.format("§cRadius must be between 1 and %.0f!", PortalConstants.MAX_NEAR_EXITS_RADIUS));
+            return true;
+        }
+
+        Player player = (Player) sender;
+        List<ExitPointIndex.Entry> exits = plugin.getPortalManager().getExitPointIndex()
+                .findWithin(player.getLocation(), radius);
+        if (exits.isEmpty()) {
+            player.sendMessage(String.format("§7No exit points within %.0f blocks.", radius));
+            return true;
+        }
+
+        player.sendMessage(String.format("§6--- Exit Points within %.0f blocks (%d) ---", radius, exits.size()));
+        for (int i = 0; i < exits.size() && i < PortalConstants.MAX_NEAR_EXITS_LISTED; i++) {
+            ExitPointIndex.Entry entry = exits.get(i);
+            Location exit = entry.getLocation();
+            player.sendMessage(String.format("§e%s §7#%d at §e%.0f, %.0f, %.0f §7(%.1f blocks)",
+                entry.getPortal().getName(),
+                entry.getPortal().getExitPoints().indexOf(exit) + 1,
+                exit.getX(),
+                exit.getY(),
+                exit.getZ(),
+                exit.distance(player.getLocation())));
+        }
+        if (exits.size() > PortalConstants.MAX_NEAR_EXITS_LISTED) {
+            player.sendMessage("§7...and " + (exits.size() - PortalConstants.MAX_NEAR_EXITS_LISTED) + " more");
+        }
+        return true;
+    }
+
     private boolean handleListExits(CommandSender sender, String[] args) {
         if (args.length < 2) {
             sender.sendMessage("§cUsage: /portal listexits <name>");
@@ -427,12 +661,16 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
             int index = 1;
             for (Location exit : exitPoints) {
                 String locString = String.format("§7%d. World: §e%s §7at §e%.0f, %.0f, %.0f",
-                    index++,
+                    index,
                     exit.getWorld().getName(),
                     exit.getX(),
                     exit.getY(),
                     exit.getZ());
+                if (portal.getSelectionMode() == Portal.ExitSelectionMode.WEIGHTED) {
+                    locString += String.format(" §7(weight §e%s§7)", portal.getExitWeight(index - 1));
+                }
                 sender.sendMessage(locString);
+                index++;
             }
             sender.sendMessage("§7Exit type: §e" + portal.getExitType());
         }
@@ -485,6 +723,12 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage("§e/portal addexit <name> §7- Add current location as additional exit point");
         sender.sendMessage("§e/portal removeexit [name] §7- Remove nearby exit point");
         sender.sendMessage("§e/portal listexits <name> §7- List all exit points for a portal");
+        sender.sendMessage("§e/portal nearexits <radius> §7- List exit points of all portals around you");
+        sender.sendMessage("§e/portal setsearch <name> <mode> §7- Set how safe exit spots are searched");
+        sender.sendMessage("§7  Modes: §acube§7, or a heightmap such as §amotion_blocking_no_leaves");
+        sender.sendMessage("§e/portal setspread <name> <mode> §7- Spread arrivals over spots around each exit");
+        sender.sendMessage("§7  Modes: §aoff§7, §around_robin§7, or §aleast_recent");
+        sender.sendMessage("§e/portal setweight <name> <exit> <weight> §7- Set an exit's weight for weighted selection");
         sender.sendMessage("§e/portal wand §7- Get a Portal Wand for GUI management");
         sender.sendMessage("§e/portal gui §7- Open the Portal List GUI");
 
@@ -493,6 +737,7 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
             sender.sendMessage("§e/portal list all §7- List ALL portals on server");
             sender.sendMessage("§e/portal removeall confirm §7- Remove ALL portals");
             sender.sendMessage("§e/portal reload §7- Reload configuration");
+            sender.sendMessage("§e/portal migrate <from> <to> §7- Copy portals between storage types");
             sender.sendMessage("§7Note: Admins can remove any portal with §e/portal remove <name>");
         }
     }
@@ -500,11 +745,12 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> subCommands = Arrays.asList("create", "remove", "list", "info", "tp", "setexit", "addexit", "removeexit", "listexits", "wand", "gui", "help");
+            List<String> subCommands = Arrays.asList("create", "remove", "list", "info", "tp", "setexit", "addexit", "removeexit", "listexits", "nearexits", "setsearch", "setspread", "setweight", "wand", "gui", "help");
             if (sender.hasPermission("portal2exit.admin")) {
                 subCommands = new ArrayList<>(subCommands);
                 subCommands.add("reload");
                 subCommands.add("removeall");
+                subCommands.add("migrate");
             }
             return filterStartsWith(subCommands, args[0]);
         }
@@ -516,7 +762,8 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
                 subCommand.equals("info") || subCommand.equals("tp") ||
                 subCommand.equals("teleport") || subCommand.equals("setexit") ||
                 subCommand.equals("addexit") || subCommand.equals("removeexit") ||
-                subCommand.equals("listexits")) {
+                subCommand.equals("listexits") || subCommand.equals("setsearch") ||
+                subCommand.equals("setspread") || subCommand.equals("setweight")) {
 
                 if (sender instanceof Player) {
                     Player player = (Player) sender;
@@ -529,6 +776,21 @@ public class PortalCommand implements CommandExecutor, TabCompleter {
             }
         }
 
+        if ((args.length == 2 || args.length == 3) && args[0].equalsIgnoreCase("migrate")
+                && sender.hasPermission("portal2exit.admin")) {
+            return filterStartsWith(PluginSettings.STORAGE_TYPES, args[args.length - 1]);
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("setsearch")) {
+            List<String> modes = new ArrayList<>(SURFACE_HEIGHT_MAPS);
+            modes.add(0, "cube");
+            return filterStartsWith(modes, args[2]);
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("setspread")) {
+            return filterStartsWith(Arrays.asList("off", "round_robin", "least_recent"), args[2]);
+        }
+
         if (args.length == 3 && args[0].equalsIgnoreCase("setexit")) {
             return filterStartsWith(Arrays.asList("spawn", "bed", "custom"), args[2]);
         }
@@ -0,0 +1,201 @@
+package portals.portaltoexit.data;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import portals.portaltoexit.utils.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-world grid of every portal's exit points, bucketed by packed chunk coordinates
+ * Kept current by the portals themselves (see Portal#setExitPointIndex)
+ * Nearest lookups search outward ring by ring and stop as soon as no closer exit can
+ * exist; when the rings would cost more than scanning the candidates directly, they do that
+ * Main thread only
+ */
+public class ExitPointIndex {
+    private static final int CELL_SIZE = 16;  // Buckets are chunk columns
+
+    private final Map<UUID, LongObjectMap<List<Entry>>> worlds = new HashMap<>();
+
+    public void add(Portal portal, Location exit) {
+        if (exit == null || exit.getWorld() == null) {
+            return;
+        }
+
+        long key = PortalSpatialIndex.chunkKey(exit.getBlockX() >> 4, exit.getBlockZ() >> 4);
+        worlds.computeIfAbsent(exit.getWorld().getUID(), id -> new LongObjectMap<>())
+                .computeIfAbsent(key, k -> new ArrayList<>(2))
+                .add(new Entry(portal, exit));
+    }
+
+    public void remove(Portal portal, Location exit) {
+        if (exit == null || exit.getWorld() == null) {
+            return;
+        }
+
+        LongObjectMap<List<Entry>> cells = worlds.get(exit.getWorld().getUID());
+        if (cells == null) {
+            return;
+        }
+
+        long key = PortalSpatialIndex.chunkKey(exit.getBlockX() >> 4, exit.getBlockZ() >> 4);
+        List<Entry> bucket = cells.get(key);
+        if (bucket != null && bucket.removeIf(entry -> entry.portal == portal && entry.location.equals(exit)) && bucket.isEmpty()) {
+            cells.remove(key);
+            if (cells.isEmpty()) {
+                worlds.remove(exit.getWorld().getUID());
+            }
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Find the nearest exit point within the radius of a location
+     * @param portal Only consider this portal's exit points, or null for any portal's
+     * @return The closest exit in range, or null if none
+     */
+    public Entry findNearest(Location location, double radius, Portal portal) {
+        World world = location.getWorld();
+        LongObjectMap<List<Entry>> cells = world != null ? worlds.get(world.getUID()) : null;
+        if (cells == null) {
+            return null;
+        }
+
+        // Past this many cells a direct scan of the candidates is cheaper than more rings
+        int budget = portal != null ? portal.getExitPointCount() : cells.size();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        Nearest nearest = new Nearest(location, radius * radius);
+        int visited = 0;
+        for (int ring = 0; ; ring++) {
+            // Anything outside the rings searched so far is at least this far away
+            double reach = (double) Math.max(ring - 1, 0) * CELL_SIZE;
+            if (reach > radius || (nearest.entry != null && nearest.distanceSquared <= reach * reach)) {
+                return nearest.entry;
+            }
+
+            if (visited > budget) {
+                return scan(cells, portal, nearest);
+            }
+
+            for (int cx = centerX - ring; cx <= centerX + ring; cx++) {
+                boolean edge = cx == centerX - ring || cx == centerX + ring;
+                for (int cz = centerZ - ring; cz <= centerZ + ring; cz += edge ? 1 : 2 * ring) {
+                    visited++;
+                    List<Entry> bucket = cells.get(PortalSpatialIndex.chunkKey(cx, cz));
+                    if (bucket != null) {
+                        nearest.offer(bucket, portal);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find every exit point within the radius of a location, nearest first
+     */
+    public List<Entry> findWithin(Location location, double radius) {
+        List<Entry> found = new ArrayList<>();
+        World world = location.getWorld();
+        LongObjectMap<List<Entry>> cells = world != null ? worlds.get(world.getUID()) : null;
+        if (cells == null) {
+            return found;
+        }
+
+        double radiusSquared = radius * radius;
+        int minChunkX = (int) Math.floor(location.getX() - radius) >> 4;
+        int maxChunkX = (int) Math.floor(location.getX() + radius) >> 4;
+        int minChunkZ = (int) Math.floor(location.getZ() - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(location.getZ() + radius) >> 4;
+        for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+            for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+                List<Entry> bucket = cells.get(PortalSpatialIndex.chunkKey(cx, cz));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry entry : bucket) {
+                    if (entry.location.distanceSquared(location) <= radiusSquared) {
+                        found.add(entry);
+                    }
+                }
+            }
+        }
+
+        found.sort((a, b) -> Double.compare(a.location.distanceSquared(location), b.location.distanceSquared(location)));
+        return found;
+    }
+
+    private static Entry scan(LongObjectMap<List<Entry>> cells, Portal portal, Nearest nearest) {
+        if (portal != null) {
+            for (Location exit : portal.getExitPoints()) {
+                nearest.offer(new Entry(portal, exit));
+            }
+        } else {
+            cells.forEach((key, bucket) -> nearest.offer(bucket, null));
+        }
+        return nearest.entry;
+    }
+
+    /**
+     * Best candidate found so far during a nearest lookup
+     */
+    private static final class Nearest {
+        private final Location from;
+        private double distanceSquared;
+        private Entry entry;
+
+        Nearest(Location from, double maxDistanceSquared) {
+            this.from = from;
+            this.distanceSquared = maxDistanceSquared;
+        }
+
+        void offer(List<Entry> bucket, Portal portal) {
+            for (int i = 0; i < bucket.size(); i++) {
+                Entry candidate = bucket.get(i);
+                if (portal == null || candidate.portal == portal) {
+                    offer(candidate);
+                }
+            }
+        }
+
+        void offer(Entry candidate) {
+            if (candidate.location.getWorld() != from.getWorld()) {
+                return;
+            }
+            double candidateDistance = candidate.location.distanceSquared(from);
+            if (candidateDistance <= distanceSquared) {
+                distanceSquared = candidateDistance;
+                entry = candidate;
+            }
+        }
+    }
+
+    /**
+     * An exit point and the portal it belongs to
+     */
+    public static final class Entry {
+        private final Portal portal;
+        private final Location location;
+
+        Entry(Portal portal, Location location) {
+            this.portal = portal;
+            this.location = location;
+        }
+
+        public Portal getPortal() {
+            return portal;
+        }
+
+        public Location getLocation() {
+            return location;
+        }
+    }
+}
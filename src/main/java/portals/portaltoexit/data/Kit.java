@@ -23,6 +23,7 @@ public class Kit implements ConfigurationSerializable {
     private final int cooldown;  // In seconds
     private final double cost;  // Additional cost for the kit
     private final String permission;  // Optional permission required
+    private int cooldownScope = -1;  // Resolved once by CooldownManager
 
     public Kit(String name) {
         this.name = name;
@@ -355,4 +356,6 @@ public class Kit implements ConfigurationSerializable {
     public int getCooldown() { return cooldown; }
     public double getCost() { return cost; }
     public String getPermission() { return permission; }
+    public int getCooldownScope() { return cooldownScope; }
+    public void setCooldownScope(int cooldownScope) { this.cooldownScope = cooldownScope; }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package portals.portaltoexit.data;
+
+import org.bukkit.Location;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-player state that only matters while the player is online
+ * One instance per online player, kept by the SessionManager and dropped on quit
+ * Fields are used on the main thread, except the pending chat action which async chat reads
+ */
+public class PlayerSession {
+    private final UUID playerId;
+
+    // GUI state
+    private Portal portalContext;  // Portal the open management GUI belongs to
+    private int page;
+    private String filter;  // Portal list search filter
+    private Location selectedLocation;  // Wand selection waiting to become an exit point
+    private final AtomicReference<String> pendingAction = new AtomicReference<>();  // Awaited chat input
+
+    // Portal detection
+    private long lastPortalCheck;  // Millis of the last portal check on move
+    private Portal zonePortal;  // Portal whose detection radius the player is in
+
+    public PlayerSession(UUID playerId) {
+        this.playerId = playerId;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public Portal getPortalContext() {
+        return portalContext;
+    }
+
+    public void setPortalContext(Portal portalContext) {
+        this.portalContext = portalContext;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public Location getSelectedLocation() {
+        return selectedLocation;
+    }
+
+    public void setSelectedLocation(Location selectedLocation) {
+        this.selectedLocation = selectedLocation;
+    }
+
+    public void setPendingAction(String action) {
+        pendingAction.set(action);
+    }
+
+    /**
+     * Take the pending chat action, so only one chat message can consume it
+     * @return The action, or null if none was pending
+     */
+    public String takePendingAction() {
+        return pendingAction.getAndSet(null);
+    }
+
+    public long getLastPortalCheck() {
+        return lastPortalCheck;
+    }
+
+    public void setLastPortalCheck(long lastPortalCheck) {
+        this.lastPortalCheck = lastPortalCheck;
+    }
+
+    public Portal getZonePortal() {
+        return zonePortal;
+    }
+
+    public void setZonePortal(Portal zonePortal) {
+        this.zonePortal = zonePortal;
+    }
+}
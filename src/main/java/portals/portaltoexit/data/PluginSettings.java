@@ -0,0 +1,448 @@
+package portals.portaltoexit.data;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import portals.portaltoexit.utils.MaterialSafety;
+import portals.portaltoexit.utils.PortalConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Immutable, typed view of config.yml
+ * Built once per (re)load so hot paths read plain fields instead of doing
+ * string-path lookups; invalid values are reported once while building
+ */
+public final class PluginSettings {
+    public static final List<String> STORAGE_TYPES = Arrays.asList("yaml", "journal", "sqlite");
+    private static final List<String> EXIT_TYPES = Arrays.asList("spawn", "bed", "custom");
+    private static final List<String> DETECTION_MODES = Arrays.asList("move", "sampled");
+
+    // Plugin
+    private final boolean debug;
+    private final int autoSaveInterval;
+    private final int saveWindowSeconds;
+
+    // Storage
+    private final String storageType;
+    private final int journalCompactInterval;
+    private final int journalCompactThresholdKb;
+
+    // Portals
+    private final int maxPortalsPerPlayer;
+    private final int cooldownSeconds;
+    private final boolean cooldownPerPortal;
+    private final boolean soundsEnabled;
+    private final boolean particlesEnabled;
+    private final Material requiredItem;
+    private final Material requiredBaseBlock;
+    private final boolean consumeItem;
+    private final String detectionMode;
+    private final int detectionSampleInterval;
+
+    // Exits
+    private final String defaultExitType;
+    private final String customExitWorld;  // Null when no custom exit is configured
+    private final double customExitX;
+    private final double customExitY;
+    private final double customExitZ;
+    private final float customExitYaw;
+    private final float customExitPitch;
+
+    // Teleportation
+    private final boolean safetyCheckEnabled;
+    private final boolean findSafeLocation;
+    private final int safeLocationSearchRadius;
+    private final MaterialSafety materialSafety;
+    private final boolean hotExitsEnabled;
+    private final int hotExitMaxChunks;
+    private final double hotExitDecay;
+    private final int hotExitEvaluateInterval;
+    private final boolean teleportQueueEnabled;
+    private final long teleportQueueTickBudgetNanos;
+    private final int arrivalSpreadSpots;
+    private final int arrivalSpreadRadius;
+    private final int arrivalSpreadSpacing;
+    private final int leastLoadedChunkRadius;
+
+    // Ambient particles
+    private final boolean portalParticlesEnabled;
+    private final double portalParticleRadius;
+    private final int portalParticleDensity;
+    private final double portalParticleHeight;
+
+    // Economy
+    private final boolean economyEnabled;
+    private final double defaultPortalCost;
+    private final double ownerRevenuePercentage;
+
+    // Kits
+    private final boolean kitsEnabled;
+    private final boolean clearInventoryForKits;
+
+    private PluginSettings(Reader reader) {
+        debug = reader.readBoolean("plugin.debug", false);
+        autoSaveInterval = reader.readInt("plugin.auto-save-interval", 5, 0);
+        saveWindowSeconds = reader.readInt("plugin.save-window-seconds", 5, 1);
+
+        storageType = reader.readChoice("storage.type", "yaml", STORAGE_TYPES);
+        journalCompactInterval = reader.readInt("storage.journal.compact-interval", 10, 0);
+        journalCompactThresholdKb = reader.readInt("storage.journal.compact-threshold-kb", 1024, 1);
+
+        maxPortalsPerPlayer = reader.readInt("portals.max-portals-per-player", 10, 0);
+        cooldownSeconds = reader.readInt("portals.cooldown", 3, 0);
+        cooldownPerPortal = reader.readBoolean("portals.cooldown-per-portal", false);
+        soundsEnabled = reader.readBoolean("portals.sounds-enabled", true);
+        particlesEnabled = reader.readBoolean("portals.particles-enabled", true);
+        requiredItem = reader.readMaterial("portals.creation.required-item", "minecraft:ender_eye");
+        requiredBaseBlock = reader.readMaterial("portals.creation.required-base-block", "minecraft:obsidian");
+        consumeItem = reader.readBoolean("portals.creation.consume-item", true);
+        detectionMode = reader.readChoice("portals.detection.mode", "move", DETECTION_MODES);
+        detectionSampleInterval = reader.readInt("portals.detection.sample-interval", 5, 1);
+
+        defaultExitType = reader.readChoice("exit-portals.default-exit-type", "spawn", EXIT_TYPES);
+        ConfigurationSection customExit = reader.config.getConfigurationSection("exit-portals.custom-exit");
+        customExitWorld = customExit != null ? customExit.getString("world", "world") : null;
+        customExitX = reader.readDouble("exit-portals.custom-exit.x", 0, -Double.MAX_VALUE, Double.MAX_VALUE);
+        customExitY = reader.readDouble("exit-portals.custom-exit.y", 64, -Double.MAX_VALUE, Double.MAX_VALUE);
+        customExitZ = reader.readDouble("exit-portals.custom-exit.z", 0, -Double.MAX_VALUE, Double.MAX_VALUE);
+        customExitYaw = (float) reader.readDouble("exit-portals.custom-exit.yaw", 0, -360, 360);
+        customExitPitch = (float) reader.readDouble("exit-portals.custom-exit.pitch", 0, -90, 90);
+
+        safetyCheckEnabled = reader.readBoolean("teleportation.safety-checks", true);
+        findSafeLocation = reader.readBoolean("teleportation.find-safe-location", true);
+        safeLocationSearchRadius = reader.readInt("teleportation.safe-location-search-radius", 5, 0);
+        materialSafety = MaterialSafety.build(reader.readMaterialList("teleportation.extra-dangerous-blocks"),
+                reader.readMaterialList("teleportation.extra-passable-blocks"));
+        hotExitsEnabled = reader.readBoolean("teleportation.hot-exits.enabled", true);
+        hotExitMaxChunks = reader.readInt("teleportation.hot-exits.max-chunks", 16, 0);
+        hotExitDecay = reader.readDouble("teleportation.hot-exits.decay", 0.5, 0, 1);
+        hotExitEvaluateInterval = reader.readInt("teleportation.hot-exits.evaluate-interval", 60, 1);
+        teleportQueueEnabled = reader.readBoolean("teleportation.queue.enabled", true);
+        teleportQueueTickBudgetNanos = (long) (reader.readDouble("teleportation.queue.tick-budget-ms", 5.0, 0.1, 50) * 1_000_000L);
+        arrivalSpreadSpots = reader.readInt("teleportation.arrival-spread.spots", 8, 1);
+        arrivalSpreadRadius = Math.min(reader.readInt("teleportation.arrival-spread.radius", 3, 1),
+                PortalConstants.MAX_SAFE_LOCATION_SEARCH_RADIUS);
+        arrivalSpreadSpacing = reader.readInt("teleportation.arrival-spread.spacing", 2, 1);
+        leastLoadedChunkRadius = reader.readInt("teleportation.least-loaded-chunk-radius", 1, 0);
+
+        portalParticlesEnabled = reader.readBoolean("portal-effects.ambient-particles.enabled", true);
+        portalParticleRadius = reader.readDouble("portal-effects.ambient-particles.radius", 2.0, 0, Double.MAX_VALUE);
+        portalParticleDensity = reader.readInt("portal-effects.ambient-particles.density", 10, 0);
+        portalParticleHeight = reader.readDouble("portal-effects.ambient-particles.height", 3.0, 0, Double.MAX_VALUE);
+
+        economyEnabled = reader.readBoolean("economy.enabled", false);
+        defaultPortalCost = reader.readDouble("economy.default-cost", 100.0, 0, Double.MAX_VALUE);
+        ownerRevenuePercentage = reader.readDouble("economy.owner-gets-percentage", 0.1, 0, 1);
+
+        kitsEnabled = reader.readBoolean("kits.enabled", false);
+        clearInventoryForKits = reader.readBoolean("kits.clear-inventory", false);
+    }
+
+    /**
+     * Compile a loaded configuration, logging a warning for every invalid value
+     */
+    public static PluginSettings load(FileConfiguration config, Logger logger) {
+        return new PluginSettings(new Reader(config, logger));
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public int getAutoSaveInterval() {
+        return autoSaveInterval;
+    }
+
+    public int getSaveWindowSeconds() {
+        return saveWindowSeconds;
+    }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public int getJournalCompactInterval() {
+        return journalCompactInterval;
+    }
+
+    public int getJournalCompactThresholdKb() {
+        return journalCompactThresholdKb;
+    }
+
+    public int getMaxPortalsPerPlayer() {
+        return maxPortalsPerPlayer;
+    }
+
+    public int getCooldownSeconds() {
+        return cooldownSeconds;
+    }
+
+    /**
+     * @return Whether each portal has its own use cooldown instead of one shared by all portals
+     */
+    public boolean isCooldownPerPortal() {
+        return cooldownPerPortal;
+    }
+
+    /**
+     * @return True to find portal users with a sampling task instead of on every move
+     */
+    public boolean isSampledDetection() {
+        return detectionMode.equals("sampled");
+    }
+
+    /**
+     * @return Ticks between two portal checks of a player near a portal in sampled mode
+     */
+    public int getDetectionSampleInterval() {
+        return detectionSampleInterval;
+    }
+
+    public boolean areSoundsEnabled() {
+        return soundsEnabled;
+    }
+
+    public boolean areParticlesEnabled() {
+        return particlesEnabled;
+    }
+
+    /**
+     * @return The item used to create portals, or null if the configured value is invalid
+     */
+    public Material getRequiredItem() {
+        return requiredItem;
+    }
+
+    /**
+     * @return The block portals are created on, or null if the configured value is invalid
+     */
+    public Material getRequiredBaseBlock() {
+        return requiredBaseBlock;
+    }
+
+    public boolean shouldConsumeItem() {
+        return consumeItem;
+    }
+
+    public String getDefaultExitType() {
+        return defaultExitType;
+    }
+
+    public String getCustomExitWorld() {
+        return customExitWorld;
+    }
+
+    public double getCustomExitX() {
+        return customExitX;
+    }
+
+    public double getCustomExitY() {
+        return customExitY;
+    }
+
+    public double getCustomExitZ() {
+        return customExitZ;
+    }
+
+    public float getCustomExitYaw() {
+        return customExitYaw;
+    }
+
+    public float getCustomExitPitch() {
+        return customExitPitch;
+    }
+
+    public boolean isSafetyCheckEnabled() {
+        return safetyCheckEnabled;
+    }
+
+    public boolean shouldFindSafeLocation() {
+        return findSafeLocation;
+    }
+
+    public int getSafeLocationSearchRadius() {
+        return safeLocationSearchRadius;
+    }
+
+    /**
+     * @return Block classification used by safety checks, including configured extra blocks
+     */
+    public MaterialSafety getMaterialSafety() {
+        return materialSafety;
+    }
+
+    public boolean areHotExitsEnabled() {
+        return hotExitsEnabled;
+    }
+
+    /**
+     * @return Most exit chunks kept loaded at once
+     */
+    public int getHotExitMaxChunks() {
+        return hotExitMaxChunks;
+    }
+
+    /**
+     * @return Share of each chunk's usage score kept per evaluation
+     */
+    public double getHotExitDecay() {
+        return hotExitDecay;
+    }
+
+    /**
+     * @return Seconds between evaluations
+     */
+    public int getHotExitEvaluateInterval() {
+        return hotExitEvaluateInterval;
+    }
+
+    public boolean isTeleportQueueEnabled() {
+        return teleportQueueEnabled;
+    }
+
+    /**
+     * @return Time per tick that may be spent starting queued teleports
+     */
+    public long getTeleportQueueTickBudgetNanos() {
+        return teleportQueueTickBudgetNanos;
+    }
+
+    /**
+     * @return Most arrival spots precomputed around a spread exit
+     */
+    public int getArrivalSpreadSpots() {
+        return arrivalSpreadSpots;
+    }
+
+    /**
+     * @return Block radius around the exit searched for arrival spots
+     */
+    public int getArrivalSpreadRadius() {
+        return arrivalSpreadRadius;
+    }
+
+    /**
+     * @return Least horizontal distance between two arrival spots
+     */
+    public int getArrivalSpreadSpacing() {
+        return arrivalSpreadSpacing;
+    }
+
+    /**
+     * @return Chunks around an exit whose players count toward its load for LEAST_LOADED selection
+     */
+    public int getLeastLoadedChunkRadius() {
+        return leastLoadedChunkRadius;
+    }
+
+    public boolean arePortalParticlesEnabled() {
+        return portalParticlesEnabled;
+    }
+
+    public double getPortalParticleRadius() {
+        return portalParticleRadius;
+    }
+
+    public int getPortalParticleDensity() {
+        return portalParticleDensity;
+    }
+
+    public double getPortalParticleHeight() {
+        return portalParticleHeight;
+    }
+
+    public boolean isEconomyEnabled() {
+        return economyEnabled;
+    }
+
+    public double getDefaultPortalCost() {
+        return defaultPortalCost;
+    }
+
+    public double getOwnerRevenuePercentage() {
+        return ownerRevenuePercentage;
+    }
+
+    public boolean areKitsEnabled() {
+        return kitsEnabled;
+    }
+
+    public boolean shouldClearInventoryForKits() {
+        return clearInventoryForKits;
+    }
+
+    /**
+     * Typed config access that falls back to the default (with a warning) on invalid values
+     */
+    private static class Reader {
+        private final FileConfiguration config;
+        private final Logger logger;
+
+        Reader(FileConfiguration config, Logger logger) {
+            this.config = config;
+            this.logger = logger;
+        }
+
+        boolean readBoolean(String path, boolean def) {
+            if (config.isSet(path) && !config.isBoolean(path)) {
+                return invalid(path, "true or false", def);
+            }
+            return config.getBoolean(path, def);
+        }
+
+        int readInt(String path, int def, int min) {
+            if (config.isSet(path) && !config.isInt(path)) {
+                return invalid(path, "a whole number", def);
+            }
+            int value = config.getInt(path, def);
+            return value < min ? invalid(path, "at least " + min, def) : value;
+        }
+
+        double readDouble(String path, double def, double min, double max) {
+            if (config.isSet(path) && !(config.get(path) instanceof Number)) {
+                return invalid(path, "a number", def);
+            }
+            double value = config.getDouble(path, def);
+            if (value < min || value > max) {
+                return invalid(path, "between " + min + " and " + max, def);
+            }
+            return value;
+        }
+
+        String readChoice(String path, String def, List<String> choices) {
+            String value = config.getString(path, def).toLowerCase();
+            return choices.contains(value) ? value : invalid(path, "one of " + choices, def);
+        }
+
+        Material readMaterial(String path, String def) {
+            String name = config.getString(path, def);
+            Material material = Material.matchMaterial(name);
+            if (material == null) {
+                logger.warning("Invalid config value '" + name + "' at " + path + ": not a known material; portal creation is disabled");
+            }
+            return material;
+        }
+
+        List<Material> readMaterialList(String path) {
+            List<Material> materials = new ArrayList<>();
+            for (String name : config.getStringList(path)) {
+                Material material = Material.matchMaterial(name);
+                if (material == null || !material.isBlock()) {
+                    logger.warning("Invalid config value '" + name + "' at " + path + ": not a known block, ignoring it");
+                } else {
+                    materials.add(material);
+                }
+            }
+            return materials;
+        }
+
+        private <T> T invalid(String path, String expected, T def) {
+            logger.warning("Invalid config value '" + config.get(path) + "' at " + path + ": expected " + expected + ", using " + def);
+            return def;
+        }
+    }
+}
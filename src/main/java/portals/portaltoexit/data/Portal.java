@@ -1,14 +1,19 @@
 package portals.portaltoexit.data;
 
+import org.bukkit.HeightMap;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import portals.portaltoexit.utils.AliasTable;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 public class Portal implements ConfigurationSerializable {
@@ -19,10 +24,15 @@ public class Portal implements ConfigurationSerializable {
     private ExitSelectionMode selectionMode;  // How to select from multiple exit points
     private Location customExit;  // Single exit for backward compatibility
     private List<Location> exitPoints;  // Multiple exit points for CUSTOM type
+    private final List<Double> exitWeights = new ArrayList<>();  // Weight per exit point for WEIGHTED selection
+    private volatile WeightedExits weightedExits;  // Built on first weighted pick, dropped when exits or weights change
+    private ExitPointIndex exitPointIndex;  // Index of registered portals' exits, kept in step with exitPoints
     private final long createdTime;
     private String kitName;  // Optional kit to give on portal use
     private double cost;  // Cost to use this portal
     private boolean showParticles;  // Whether to show ambient particles
+    private HeightMap surfaceHeightMap;  // Heightmap for the surface-first safety search; null scans the whole cube
+    private ArrivalSpread arrivalSpread = ArrivalSpread.OFF;  // How arrivals are spread around each exit
 
     // New fields for activation requirements
     private List<RequiredItem> requiredItems;  // Items required to activate portal
@@ -30,8 +40,7 @@ public class Portal implements ConfigurationSerializable {
     private String requiredKit;  // Kit that must have been received to use portal
     private String kitToGive;  // Kit to give when using portal (different from kitName for backward compatibility)
     private double creationCost;  // Cost that was paid to create this portal (for refunds)
-
-    private static final Random random = new Random();
+    private int cooldownScope = -1;  // Own cooldown scope, resolved once by CooldownManager
 
     public Portal(String name, Location location, UUID owner) {
         this.name = name;
@@ -62,6 +71,7 @@ public class Portal implements ConfigurationSerializable {
         this.exitPoints = new ArrayList<>();
         if (customExit != null && exitType == ExitType.CUSTOM) {
             this.exitPoints.add(customExit);
+            this.exitWeights.add(1.0);
         }
         this.createdTime = createdTime;
         this.kitName = null;
@@ -85,6 +95,7 @@ public class Portal implements ConfigurationSerializable {
         this.exitPoints = new ArrayList<>();
         if (customExit != null && exitType == ExitType.CUSTOM) {
             this.exitPoints.add(customExit);
+            this.exitWeights.add(1.0);
         }
         this.createdTime = createdTime;
         this.kitName = kitName;
@@ -117,7 +128,10 @@ public class Portal implements ConfigurationSerializable {
         this.exitType = exitType;
         if (exitType != ExitType.CUSTOM && exitType != ExitType.RANDOM) {
             // Clear exit points if not using custom exits
+            unindexExitPoints();
             this.exitPoints.clear();
+            this.exitWeights.clear();
+            weightedExits = null;
         }
     }
 
@@ -137,7 +151,10 @@ public class Portal implements ConfigurationSerializable {
                     return getRandomExitPoint();
                 case SEQUENTIAL:
                     return getSequentialExitPoint();
+                case WEIGHTED:
+                    return getWeightedExitPoint();
                 case NEAREST:
+                case LEAST_LOADED:
                     // Note: For nearest, we need a reference location which we don't have here
                     // This method will be used primarily for backward compatibility
                     return exitPoints.get(0);
@@ -152,16 +169,28 @@ public class Portal implements ConfigurationSerializable {
     public void setCustomExit(Location customExit) {
         this.customExit = customExit;
         // Clear existing exit points and add the new one
+        unindexExitPoints();
         this.exitPoints.clear();
+        this.exitWeights.clear();
         if (customExit != null) {
             this.exitPoints.add(customExit);
+            this.exitWeights.add(1.0);
+            if (exitPointIndex != null) {
+                exitPointIndex.add(this, customExit);
+            }
         }
+        weightedExits = null;
     }
 
     // New methods for managing multiple exit points
     public void addExitPoint(Location exit) {
         if (exit != null && !exitPoints.contains(exit)) {
             exitPoints.add(exit);
+            exitWeights.add(1.0);
+            weightedExits = null;
+            if (exitPointIndex != null) {
+                exitPointIndex.add(this, exit);
+            }
             // Update customExit for backward compatibility
             if (customExit == null) {
                 customExit = exit;
@@ -170,7 +199,15 @@ public class Portal implements ConfigurationSerializable {
     }
 
     public void removeExitPoint(Location exit) {
-        exitPoints.remove(exit);
+        int index = exitPoints.indexOf(exit);
+        if (index >= 0) {
+            exitPoints.remove(index);
+            exitWeights.remove(index);
+            weightedExits = null;
+            if (exitPointIndex != null) {
+                exitPointIndex.remove(this, exit);
+            }
+        }
         // Update customExit if it was removed
         if (exit != null && exit.equals(customExit)) {
             customExit = exitPoints.isEmpty() ? null : exitPoints.get(0);
@@ -182,24 +219,113 @@ public class Portal implements ConfigurationSerializable {
     }
 
     public void clearExitPoints() {
+        unindexExitPoints();
         exitPoints.clear();
+        exitWeights.clear();
+        weightedExits = null;
         customExit = null;
     }
 
+    public int getExitPointCount() {
+        return exitPoints.size();
+    }
+
+    /**
+     * Keep an index in step with this portal's exit points, or stop with null
+     * Moves every current exit point from the previous index to the new one
+     */
+    public void setExitPointIndex(ExitPointIndex index) {
+        unindexExitPoints();
+        exitPointIndex = index;
+        if (index != null) {
+            for (Location exit : exitPoints) {
+                index.add(this, exit);
+            }
+        }
+    }
+
+    private void unindexExitPoints() {
+        if (exitPointIndex != null) {
+            for (Location exit : exitPoints) {
+                exitPointIndex.remove(this, exit);
+            }
+        }
+    }
+
+    /**
+     * @return Weight of the exit point at the index for WEIGHTED selection
+     */
+    public double getExitWeight(int index) {
+        return exitWeights.get(index);
+    }
+
+    public void setExitWeight(int index, double weight) {
+        exitWeights.set(index, Math.max(weight, 0));
+        weightedExits = null;
+    }
+
     public Location getRandomExitPoint() {
         if (exitPoints.isEmpty()) {
             return customExit;
         }
-        return exitPoints.get(random.nextInt(exitPoints.size()));
+        return exitPoints.get(ThreadLocalRandom.current().nextInt(exitPoints.size()));
+    }
+
+    // Weighted random pick in constant time; falls back to uniform when every weight is zero
+    public Location getWeightedExitPoint() {
+        WeightedExits weighted = weightedExits;
+        if (weighted == null) {
+            if (exitPoints.isEmpty()) {
+                return customExit;
+            }
+            double[] weights = new double[exitWeights.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = exitWeights.get(i);
+            }
+            weighted = new WeightedExits(exitPoints.toArray(new Location[0]), AliasTable.build(weights));
+            weightedExits = weighted;
+        }
+
+        if (weighted.table == null) {
+            return weighted.exits[ThreadLocalRandom.current().nextInt(weighted.exits.length)];
+        }
+        return weighted.exits[weighted.table.sample()];
+    }
+
+    /**
+     * Pick the exit point with the fewest players around it, breaking ties at random
+     * @param occupancy Players currently around an exit point
+     */
+    public Location getLeastLoadedExitPoint(ToIntFunction<Location> occupancy) {
+        Location best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        int ties = 0;
+        for (Location exit : exitPoints) {
+            int load = occupancy.applyAsInt(exit);
+            if (load < bestLoad) {
+                best = exit;
+                bestLoad = load;
+                ties = 1;
+            } else if (load == bestLoad && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                best = exit;
+            }
+        }
+        return best != null ? best : customExit;
     }
 
     public Location getNearestExitPoint(Location from) {
+        if (exitPointIndex != null) {
+            ExitPointIndex.Entry nearest = exitPointIndex.findNearest(from, Double.MAX_VALUE, this);
+            return nearest != null ? nearest.getLocation() : null;
+        }
+
+        // Not registered with a portal manager; scan this portal's own exits
         Location nearest = null;
         double minDistance = Double.MAX_VALUE;
 
         for (Location exit : exitPoints) {
             if (exit.getWorld() == from.getWorld()) {
-                double distance = exit.distance(from);
+                double distance = exit.distanceSquared(from);
                 if (distance < minDistance) {
                     minDistance = distance;
                     nearest = exit;
@@ -211,20 +337,27 @@ public class Portal implements ConfigurationSerializable {
     }
 
     // Sequential exit point selection (cycles through exits in order)
-    private int lastUsedExitIndex = 0;
+    private final AtomicInteger sequentialCursor = new AtomicInteger();
 
     public Location getSequentialExitPoint() {
         if (exitPoints.isEmpty()) {
             return customExit;
         }
 
-        Location selectedExit = exitPoints.get(lastUsedExitIndex);
-        lastUsedExitIndex = (lastUsedExitIndex + 1) % exitPoints.size();
-        return selectedExit;
+        return exitPoints.get(Math.floorMod(sequentialCursor.getAndIncrement(), exitPoints.size()));
+    }
+
+    // The exit point the next getSequentialExitPoint call returns, without taking the turn
+    public Location peekSequentialExitPoint() {
+        if (exitPoints.isEmpty()) {
+            return customExit;
+        }
+
+        return exitPoints.get(Math.floorMod(sequentialCursor.get(), exitPoints.size()));
     }
 
     public void resetSequentialIndex() {
-        lastUsedExitIndex = 0;
+        sequentialCursor.set(0);
     }
 
     // Get exit point based on current exit type and selection mode
@@ -245,6 +378,9 @@ public class Portal implements ConfigurationSerializable {
                         return getSequentialExitPoint();
                     case NEAREST:
                         return getNearestExitPoint(fromLocation);
+                    case WEIGHTED:
+                        return getWeightedExitPoint();
+                    case LEAST_LOADED:  // Needs live occupancy; the teleportation manager resolves it
                     case FIRST:
                     default:
                         return exitPoints.get(0);
@@ -319,6 +455,22 @@ public class Portal implements ConfigurationSerializable {
         this.showParticles = showParticles;
     }
 
+    public HeightMap getSurfaceHeightMap() {
+        return surfaceHeightMap;
+    }
+
+    public void setSurfaceHeightMap(HeightMap surfaceHeightMap) {
+        this.surfaceHeightMap = surfaceHeightMap;
+    }
+
+    public ArrivalSpread getArrivalSpread() {
+        return arrivalSpread;
+    }
+
+    public void setArrivalSpread(ArrivalSpread arrivalSpread) {
+        this.arrivalSpread = arrivalSpread != null ? arrivalSpread : ArrivalSpread.OFF;
+    }
+
     // New getter and setter methods for activation requirements
     public List<RequiredItem> getRequiredItems() {
         return new ArrayList<>(requiredItems);
@@ -366,6 +518,14 @@ public class Portal implements ConfigurationSerializable {
         this.kitToGive = kitToGive;
     }
 
+    public int getCooldownScope() {
+        return cooldownScope;
+    }
+
+    public void setCooldownScope(int cooldownScope) {
+        this.cooldownScope = cooldownScope;
+    }
+
     public double getCreationCost() {
         return creationCost;
     }
@@ -388,6 +548,9 @@ public class Portal implements ConfigurationSerializable {
         // Save all exit points
         if (!exitPoints.isEmpty()) {
             map.put("exitPoints", exitPoints);
+            if (exitWeights.stream().anyMatch(weight -> weight != 1.0)) {
+                map.put("exitWeights", new ArrayList<>(exitWeights));
+            }
         }
         map.put("createdTime", createdTime);
         if (kitName != null) {
@@ -395,6 +558,12 @@ public class Portal implements ConfigurationSerializable {
         }
         map.put("cost", cost);
         map.put("showParticles", showParticles);
+        if (surfaceHeightMap != null) {
+            map.put("surfaceHeightMap", surfaceHeightMap.name());
+        }
+        if (arrivalSpread != ArrivalSpread.OFF) {
+            map.put("arrivalSpread", arrivalSpread.name());
+        }
 
         // Save new fields
         if (!requiredItems.isEmpty()) {
@@ -441,6 +610,12 @@ public class Portal implements ConfigurationSerializable {
                 portal.addExitPoint(exit);
             }
         }
+        if (map.containsKey("exitWeights")) {
+            List<Number> weights = (List<Number>) map.get("exitWeights");
+            for (int i = 0; i < weights.size() && i < portal.exitPoints.size(); i++) {
+                portal.setExitWeight(i, weights.get(i).doubleValue());
+            }
+        }
 
         // Load new fields
         if (map.containsKey("requiredItems")) {
@@ -461,6 +636,16 @@ public class Portal implements ConfigurationSerializable {
         if (map.containsKey("creationCost")) {
             portal.setCreationCost(((Number) map.get("creationCost")).doubleValue());
         }
+        if (map.containsKey("surfaceHeightMap")) {
+            try {
+                portal.setSurfaceHeightMap(HeightMap.valueOf((String) map.get("surfaceHeightMap")));
+            } catch (IllegalArgumentException e) {
+                // Unknown on this server version; fall back to the cube search
+            }
+        }
+        if (map.containsKey("arrivalSpread")) {
+            portal.setArrivalSpread(ArrivalSpread.valueOf((String) map.get("arrivalSpread")));
+        }
 
         return portal;
     }
@@ -476,7 +661,9 @@ public class Portal implements ConfigurationSerializable {
         FIRST("Uses first exit point"),
         RANDOM("Randomly selects"),
         SEQUENTIAL("Cycles through in order"),
-        NEAREST("Uses nearest exit point");
+        NEAREST("Uses nearest exit point"),
+        WEIGHTED("Randomly selects by weight"),
+        LEAST_LOADED("Uses least crowded exit point");
 
         private final String description;
 
@@ -489,6 +676,35 @@ public class Portal implements ConfigurationSerializable {
         }
     }
 
+    /**
+     * Exit points frozen together with their alias table
+     */
+    private static final class WeightedExits {
+        private final Location[] exits;
+        private final AliasTable table;  // Null when every weight is zero
+
+        WeightedExits(Location[] exits, AliasTable table) {
+            this.exits = exits;
+            this.table = table;
+        }
+    }
+
+    public enum ArrivalSpread {
+        OFF("Everyone arrives on the exit"),
+        ROUND_ROBIN("Spots around the exit in turn"),
+        LEAST_RECENT("Least recently used spot around the exit");
+
+        private final String description;
+
+        ArrivalSpread(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
     /**
      * Represents an item required to activate a portal
      */
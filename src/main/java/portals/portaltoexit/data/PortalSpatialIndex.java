@@ -0,0 +1,157 @@
+package portals.portaltoexit.data;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import portals.portaltoexit.utils.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-world spatial index of portals bucketed by packed chunk coordinates
+ * Lookups only touch the chunks overlapping the search radius, so cost does
+ * not grow with the total number of portals
+ */
+public class PortalSpatialIndex {
+    private final Map<UUID, LongObjectMap<List<Portal>>> worlds = new HashMap<>();
+    private int version;  // Bumped on every change
+
+    public void add(Portal portal) {
+        Location location = portal.getLocation();
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        List<Portal> bucket = worlds.computeIfAbsent(location.getWorld().getUID(), id -> new LongObjectMap<>())
+                .computeIfAbsent(key, k -> new ArrayList<>(2));
+        if (!bucket.contains(portal)) {
+            bucket.add(portal);
+            version++;
+        }
+    }
+
+    public void remove(Portal portal) {
+        Location location = portal.getLocation();
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+
+        LongObjectMap<List<Portal>> chunks = worlds.get(location.getWorld().getUID());
+        if (chunks == null) {
+            return;
+        }
+
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        List<Portal> bucket = chunks.get(key);
+        if (bucket != null && bucket.remove(portal)) {
+            version++;
+            if (bucket.isEmpty()) {
+                chunks.remove(key);
+                if (chunks.isEmpty()) {
+                    worlds.remove(location.getWorld().getUID());
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+        version++;
+    }
+
+    /**
+     * @return A counter that changes whenever a portal is added or removed
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Check whether any portal lies in the chunks around a chunk
+     * @param chunkRadius How many chunks to look in each direction
+     */
+    public boolean hasPortalNear(World world, int chunkX, int chunkZ, int chunkRadius) {
+        LongObjectMap<List<Portal>> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return false;
+        }
+
+        for (int x = chunkX - chunkRadius; x <= chunkX + chunkRadius; x++) {
+            for (int z = chunkZ - chunkRadius; z <= chunkZ + chunkRadius; z++) {
+                if (chunks.get(chunkKey(x, z)) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the nearest portal within the given radius of a location
+     * @param location The location to search around
+     * @param radius Maximum distance from the portal centre
+     * @return The closest portal in range, or null if none
+     */
+    public Portal findNearest(Location location, double radius) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        LongObjectMap<List<Portal>> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return null;
+        }
+
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+        int minChunkX = floor(x - radius) >> 4;
+        int maxChunkX = floor(x + radius) >> 4;
+        int minChunkZ = floor(z - radius) >> 4;
+        int maxChunkZ = floor(z + radius) >> 4;
+
+        Portal nearest = null;
+        double bestDistanceSquared = radius * radius;
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                List<Portal> bucket = chunks.get(chunkKey(chunkX, chunkZ));
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < bucket.size(); i++) {
+                    Portal portal = bucket.get(i);
+                    Location portalLoc = portal.getLocation();
+                    double dx = portalLoc.getX() - x;
+                    double dy = portalLoc.getY() - y;
+                    double dz = portalLoc.getZ() - z;
+                    double distanceSquared = dx * dx + dy * dy + dz * dz;
+                    if (distanceSquared <= bestDistanceSquared) {
+                        bestDistanceSquared = distanceSquared;
+                        nearest = portal;
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Pack chunk coordinates into a single long key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int floor(double value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+}
@@ -0,0 +1,34 @@
+package portals.portaltoexit.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import portals.portaltoexit.data.Portal;
+
+/**
+ * Called when a player enters the detection radius of a portal
+ * Fired once per entry; the matching {@link PortalLeaveEvent} follows when they leave it
+ */
+public class PortalApproachEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Portal portal;
+
+    public PortalApproachEvent(Player player, Portal portal) {
+        super(player);
+        this.portal = portal;
+    }
+
+    public Portal getPortal() {
+        return portal;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
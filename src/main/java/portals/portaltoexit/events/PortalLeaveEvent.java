@@ -0,0 +1,34 @@
+package portals.portaltoexit.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import portals.portaltoexit.data.Portal;
+
+/**
+ * Called when a player who approached a portal leaves its detection radius,
+ * including by teleporting through it, by the portal being removed or by quitting
+ */
+public class PortalLeaveEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Portal portal;
+
+    public PortalLeaveEvent(Player player, Portal portal) {
+        super(player);
+        this.portal = portal;
+    }
+
+    public Portal getPortal() {
+        return portal;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
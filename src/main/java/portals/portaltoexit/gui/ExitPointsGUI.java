@@ -141,6 +141,16 @@ public class ExitPointsGUI {
                     modeName = "Nearest Exit Point";
                     color = ChatColor.AQUA;
                     break;
+                case WEIGHTED:
+                    material = Material.HOPPER;
+                    modeName = "Weighted Random";
+                    color = ChatColor.GOLD;
+                    break;
+                case LEAST_LOADED:
+                    material = Material.COMPARATOR;
+                    modeName = "Least Crowded";
+                    color = ChatColor.YELLOW;
+                    break;
                 default:
                     material = Material.STONE;
                     modeName = "Unknown";
@@ -156,6 +166,8 @@ public class ExitPointsGUI {
                 ChatColor.WHITE + "RANDOM - Randomly select from exit points",
                 ChatColor.WHITE + "SEQUENTIAL - Cycle through in order",
                 ChatColor.WHITE + "NEAREST - Use closest exit to player",
+                ChatColor.WHITE + "WEIGHTED - Randomly select by exit weight",
+                ChatColor.WHITE + "LEAST_LOADED - Use exit with fewest players",
                 "",
                 ChatColor.YELLOW + "Click to cycle through selection modes"
             );
@@ -13,25 +13,14 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.block.Action;
 import org.bukkit.inventory.ItemStack;
 import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PlayerSession;
 import portals.portaltoexit.data.Portal;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-
 public class GUIListener implements Listener {
     private final Portaltoexit plugin;
-    private final Map<UUID, Portal> playerPortalContext = new HashMap<>();
-    private final Map<UUID, Integer> playerPageContext = new HashMap<>();
-    private final Map<UUID, String> playerFilterContext = new HashMap<>();
-    private final Map<UUID, String> playerPendingAction = new HashMap<>();
-    private final Map<UUID, Location> playerSelectedLocation = new HashMap<>();
-    private final Map<UUID, String> playerWandSelectionMode = new HashMap<>();
-    private final Map<UUID, Portal> playerSelectedPortal = new HashMap<>();
 
     public GUIListener(Portaltoexit plugin) {
         this.plugin = plugin;
@@ -49,6 +38,7 @@ public class GUIListener implements Listener {
 
         // Now that we know it's a portal wand, cancel the event
         event.setCancelled(true);
+        PlayerSession session = plugin.getSessionManager().get(player);
 
         if (event.getAction() == Action.RIGHT_CLICK_BLOCK || event.getAction() == Action.RIGHT_CLICK_AIR) {
 
@@ -62,12 +52,12 @@ public class GUIListener implements Listener {
                 }
 
                 // Check if player has a selected location to add as exit point
-                Location selectedLoc = playerSelectedLocation.get(player.getUniqueId());
+                Location selectedLoc = session.getSelectedLocation();
                 if (selectedLoc != null) {
                     // Validate location before adding
                     if (selectedLoc.getWorld() == null) {
                         player.sendMessage(ChatColor.RED + "Invalid location: world not loaded!");
-                        playerSelectedLocation.remove(player.getUniqueId());
+                        session.setSelectedLocation(null);
                         return;
                     }
 
@@ -84,24 +74,24 @@ public class GUIListener implements Listener {
                     }
 
                     nearbyPortal.addExitPoint(selectedLoc);
-                    plugin.getPortalManager().savePortals();
+                    plugin.getPortalManager().markDirty(nearbyPortal);
                     player.sendMessage(ChatColor.GREEN + "Exit point added to portal " + nearbyPortal.getName() + "!");
                     player.sendMessage(ChatColor.GRAY + "Total exit points: " + nearbyPortal.getExitPoints().size());
-                    playerSelectedLocation.remove(player.getUniqueId());
+                    session.setSelectedLocation(null);
 
                     // Open the exit points GUI to show the new exit point
-                    playerPortalContext.put(player.getUniqueId(), nearbyPortal);
+                    session.setPortalContext(nearbyPortal);
                     ExitPointsGUI.openExitPointsGUI(player, nearbyPortal, 0);
                 } else {
                     // No selected location, open portal management GUI
-                    playerPortalContext.put(player.getUniqueId(), nearbyPortal);
+                    session.setPortalContext(nearbyPortal);
                     PortalGUI.openPortalGUI(player, nearbyPortal);
                 }
             } else {
                 // No nearby portal - allow portal creation
                 if (event.getAction() == Action.RIGHT_CLICK_BLOCK && event.getClickedBlock() != null) {
                     // Create portal at clicked block location
-                    String portalName = generatePortalName(player);
+                    String portalName = plugin.getPortalManager().generatePortalName(player);
                     Location portalLoc = event.getClickedBlock().getLocation().add(0.5, 1, 0.5);
 
                     if (plugin.getPortalManager().createPortal(player, portalName, portalLoc)) {
@@ -119,11 +109,11 @@ public class GUIListener implements Listener {
         } else if (event.getAction() == Action.LEFT_CLICK_BLOCK || event.getAction() == Action.LEFT_CLICK_AIR) {
             if (event.getClickedBlock() != null) {
                 Location clickedLocation = event.getClickedBlock().getLocation().add(0.5, 1, 0.5);
-                playerSelectedLocation.put(player.getUniqueId(), clickedLocation);
+                session.setSelectedLocation(clickedLocation);
                 player.sendMessage(ChatColor.GREEN + "Location selected! Use the Portal Wand on a portal to add this as an exit point.");
             } else {
                 // Left-clicking air - provide feedback
-                Location selectedLoc = playerSelectedLocation.get(player.getUniqueId());
+                Location selectedLoc = session.getSelectedLocation();
                 if (selectedLoc != null) {
                     player.sendMessage(ChatColor.YELLOW + "Current selected location: " +
                         ChatColor.WHITE + String.format("X: %.1f, Y: %.1f, Z: %.1f in %s",
@@ -195,7 +185,8 @@ public class GUIListener implements Listener {
 
     private void handlePortalGUIClick(Player player, InventoryClickEvent event) {
         int slot = event.getSlot();
-        Portal portal = playerPortalContext.get(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().get(player);
+        Portal portal = session.getPortalContext();
 
         if (portal == null) {
             player.closeInventory();
@@ -205,7 +196,7 @@ public class GUIListener implements Listener {
         switch (slot) {
             case 20: // Manage Exit Points
                 // Ensure portal context is maintained when opening exit points GUI
-                playerPortalContext.put(player.getUniqueId(), portal);
+                session.setPortalContext(portal);
                 ExitPointsGUI.openExitPointsGUI(player, portal, 0);
                 break;
 
@@ -216,7 +207,7 @@ public class GUIListener implements Listener {
 
             case 22: // Particle Toggle
                 portal.setShowParticles(!portal.isShowParticles());
-                plugin.getPortalManager().savePortals();
+                plugin.getPortalManager().markDirty(portal);
                 player.sendMessage(ChatColor.GREEN + "Particles " +
                     (portal.isShowParticles() ? "enabled" : "disabled") + " for portal " + portal.getName());
                 PortalGUI.openPortalGUI(player, portal);
@@ -228,7 +219,7 @@ public class GUIListener implements Listener {
 
             case 24: // Kit Setting
                 // Open kit selection GUI
-                playerPortalContext.put(player.getUniqueId(), portal);
+                session.setPortalContext(portal);
                 KitSelectionGUI.openKitSelectionGUI(player, portal, 0);
                 break;
 
@@ -236,7 +227,7 @@ public class GUIListener implements Listener {
                 if (portal.getOwner().equals(player.getUniqueId()) || player.hasPermission("portal2exit.admin")) {
                     plugin.getPortalManager().removePortal(player, portal.getName());
                     player.closeInventory();
-                    playerPortalContext.remove(player.getUniqueId());
+                    session.setPortalContext(null);
                 }
                 break;
 
@@ -252,7 +243,8 @@ public class GUIListener implements Listener {
 
     private void handleExitPointsGUIClick(Player player, InventoryClickEvent event) {
         int slot = event.getSlot();
-        Portal portal = playerPortalContext.get(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().get(player);
+        Portal portal = session.getPortalContext();
 
         if (portal == null) {
             player.closeInventory();
@@ -261,7 +253,7 @@ public class GUIListener implements Listener {
 
         if (ExitPointsGUI.isExitPointSlot(slot)) {
             int exitIndex = ExitPointsGUI.getExitPointIndex(slot);
-            int currentPage = playerPageContext.getOrDefault(player.getUniqueId(), 0);
+            int currentPage = session.getPage();
             int actualIndex = currentPage * 28 + exitIndex;
 
             if (actualIndex < portal.getExitPoints().size()) {
@@ -274,7 +266,7 @@ public class GUIListener implements Listener {
                 } else if (event.getClick() == ClickType.RIGHT) {
                     // Remove exit point
                     portal.removeExitPoint(exitPoint);
-                    plugin.getPortalManager().savePortals();
+                    plugin.getPortalManager().markDirty(portal);
                     player.sendMessage(ChatColor.GREEN + "Exit point removed!");
                     ExitPointsGUI.openExitPointsGUI(player, portal, currentPage);
                 }
@@ -282,12 +274,12 @@ public class GUIListener implements Listener {
         } else {
             switch (slot) {
                 case 45: // Add Exit Point
-                    Location selectedLoc = playerSelectedLocation.get(player.getUniqueId());
+                    Location selectedLoc = session.getSelectedLocation();
                     if (selectedLoc != null) {
                         // Validate location before adding
                         if (selectedLoc.getWorld() == null) {
                             player.sendMessage(ChatColor.RED + "Invalid location: world not loaded!");
-                            playerSelectedLocation.remove(player.getUniqueId());
+                            session.setSelectedLocation(null);
                             return;
                         }
 
@@ -296,9 +288,9 @@ public class GUIListener implements Listener {
                         }
 
                         portal.addExitPoint(selectedLoc);
-                        plugin.getPortalManager().savePortals();
+                        plugin.getPortalManager().markDirty(portal);
                         player.sendMessage(ChatColor.GREEN + "Exit point added!");
-                        playerSelectedLocation.remove(player.getUniqueId());
+                        session.setSelectedLocation(null);
                     } else {
                         // Validate current location
                         Location currentLoc = player.getLocation();
@@ -312,10 +304,10 @@ public class GUIListener implements Listener {
                         }
 
                         portal.addExitPoint(currentLoc);
-                        plugin.getPortalManager().savePortals();
+                        plugin.getPortalManager().markDirty(portal);
                         player.sendMessage(ChatColor.GREEN + "Current location added as exit point!");
                     }
-                    ExitPointsGUI.openExitPointsGUI(player, portal, playerPageContext.getOrDefault(player.getUniqueId(), 0));
+                    ExitPointsGUI.openExitPointsGUI(player, portal, session.getPage());
                     break;
 
                 case 46: // Selection Mode
@@ -324,24 +316,24 @@ public class GUIListener implements Listener {
                     } else {
                         cycleExitMode(player, portal);
                     }
-                    ExitPointsGUI.openExitPointsGUI(player, portal, playerPageContext.getOrDefault(player.getUniqueId(), 0));
+                    ExitPointsGUI.openExitPointsGUI(player, portal, session.getPage());
                     break;
 
                 case 48: // Previous Page
-                    int prevPage = Math.max(0, playerPageContext.getOrDefault(player.getUniqueId(), 0) - 1);
-                    playerPageContext.put(player.getUniqueId(), prevPage);
+                    int prevPage = Math.max(0, session.getPage() - 1);
+                    session.setPage(prevPage);
                     ExitPointsGUI.openExitPointsGUI(player, portal, prevPage);
                     break;
 
                 case 50: // Next Page
-                    int nextPage = playerPageContext.getOrDefault(player.getUniqueId(), 0) + 1;
-                    playerPageContext.put(player.getUniqueId(), nextPage);
+                    int nextPage = session.getPage() + 1;
+                    session.setPage(nextPage);
                     ExitPointsGUI.openExitPointsGUI(player, portal, nextPage);
                     break;
 
                 case 52: // Back
                     // Ensure portal context is maintained when going back
-                    playerPortalContext.put(player.getUniqueId(), portal);
+                    session.setPortalContext(portal);
                     PortalGUI.openPortalGUI(player, portal);
                     break;
 
@@ -354,15 +346,16 @@ public class GUIListener implements Listener {
 
     private void handlePortalListGUIClick(Player player, InventoryClickEvent event) {
         int slot = event.getSlot();
-        int currentPage = playerPageContext.getOrDefault(player.getUniqueId(), 0);
-        String currentFilter = playerFilterContext.get(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().get(player);
+        int currentPage = session.getPage();
+        String currentFilter = session.getFilter();
 
         if (PortalListGUI.isPortalSlot(slot)) {
             Portal portal = PortalListGUI.getPortalFromSlot(slot, currentPage, currentFilter, player);
             if (portal != null) {
                 if (event.getClick() == ClickType.LEFT) {
                     // Open portal management
-                    playerPortalContext.put(player.getUniqueId(), portal);
+                    session.setPortalContext(portal);
                     PortalGUI.openPortalGUI(player, portal);
                 } else if (event.getClick() == ClickType.RIGHT) {
                     // Teleport to portal with error handling
@@ -392,7 +385,7 @@ public class GUIListener implements Listener {
                 case 45: // Search
                     player.closeInventory();
                     player.sendMessage(ChatColor.YELLOW + "Type the name of the portal you want to search for:");
-                    playerPendingAction.put(player.getUniqueId(), "search");
+                    session.setPendingAction("search");
                     break;
 
                 case 46: // Refresh
@@ -401,13 +394,13 @@ public class GUIListener implements Listener {
 
                 case 48: // Previous Page
                     int prevPage = Math.max(0, currentPage - 1);
-                    playerPageContext.put(player.getUniqueId(), prevPage);
+                    session.setPage(prevPage);
                     PortalListGUI.openPortalListGUI(player, prevPage, currentFilter);
                     break;
 
                 case 50: // Next Page
                     int nextPage = currentPage + 1;
-                    playerPageContext.put(player.getUniqueId(), nextPage);
+                    session.setPage(nextPage);
                     PortalListGUI.openPortalListGUI(player, nextPage, currentFilter);
                     break;
 
@@ -420,15 +413,16 @@ public class GUIListener implements Listener {
 
     @EventHandler
     public void onPlayerChat(AsyncPlayerChatEvent event) {
+        // Runs off the main thread: only the pending action is touched here
         Player player = event.getPlayer();
-        String pendingAction = playerPendingAction.get(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().find(player.getUniqueId());
+        String pendingAction = session != null ? session.takePendingAction() : null;
 
         if (pendingAction == null) {
             return;
         }
 
         event.setCancelled(true);
-        playerPendingAction.remove(player.getUniqueId());
 
         String message = event.getMessage().trim();
 
@@ -440,12 +434,13 @@ public class GUIListener implements Listener {
                 return;
             }
 
-            playerFilterContext.put(player.getUniqueId(), message);
-            playerPageContext.put(player.getUniqueId(), 0);
             player.sendMessage(ChatColor.GREEN + "Searching for portals containing: " + message);
 
-            Bukkit.getScheduler().runTask(plugin, () ->
-                PortalListGUI.openPortalListGUI(player, 0, message));
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                session.setFilter(message);
+                session.setPage(0);
+                PortalListGUI.openPortalListGUI(player, 0, message);
+            });
         }
     }
 
@@ -472,7 +467,7 @@ public class GUIListener implements Listener {
         }
 
         portal.setExitType(newType);
-        plugin.getPortalManager().savePortals();
+        plugin.getPortalManager().markDirty(portal);
         player.sendMessage(ChatColor.GREEN + "Exit mode changed to: " + newType.toString());
     }
 
@@ -491,6 +486,12 @@ public class GUIListener implements Listener {
                 newMode = Portal.ExitSelectionMode.NEAREST;
                 break;
             case NEAREST:
+                newMode = Portal.ExitSelectionMode.WEIGHTED;
+                break;
+            case WEIGHTED:
+                newMode = Portal.ExitSelectionMode.LEAST_LOADED;
+                break;
+            case LEAST_LOADED:
                 newMode = Portal.ExitSelectionMode.FIRST;
                 break;
             default:
@@ -499,7 +500,7 @@ public class GUIListener implements Listener {
         }
 
         portal.setSelectionMode(newMode);
-        plugin.getPortalManager().savePortals();
+        plugin.getPortalManager().markDirty(portal);
         player.sendMessage(ChatColor.GREEN + "Exit selection mode changed to: " + newMode.toString());
     }
 
@@ -521,7 +522,7 @@ public class GUIListener implements Listener {
         }
 
         portal.setCost(newCost);
-        plugin.getPortalManager().savePortals();
+        plugin.getPortalManager().markDirty(portal);
 
         String costText = newCost > 0 ? String.valueOf(newCost) : "Free";
         player.sendMessage(ChatColor.GREEN + "Portal cost set to: " + costText);
@@ -545,55 +546,56 @@ public class GUIListener implements Listener {
 
     private void handleKitSelectionGUIClick(Player player, InventoryClickEvent event) {
         int slot = event.getSlot();
-        Portal portal = playerPortalContext.get(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().get(player);
+        Portal portal = session.getPortalContext();
 
         if (portal == null) {
             player.closeInventory();
             return;
         }
 
-        int currentPage = playerPageContext.getOrDefault(player.getUniqueId(), 0);
+        int currentPage = session.getPage();
 
         if (KitSelectionGUI.isKitSlot(slot)) {
             // Player selected a kit
             String kitName = KitSelectionGUI.getKitNameFromSlot(slot, currentPage, player);
             if (kitName != null) {
                 portal.setKitName(kitName);
-                plugin.getPortalManager().savePortals();
+                plugin.getPortalManager().markDirty(portal);
                 player.sendMessage(ChatColor.GREEN + "Portal kit set to: " + kitName);
 
                 // Go back to portal GUI
-                playerPortalContext.put(player.getUniqueId(), portal);
+                session.setPortalContext(portal);
                 PortalGUI.openPortalGUI(player, portal);
             }
         } else if (KitSelectionGUI.isNoKitSlot(slot)) {
             // Player selected "No Kit"
             portal.setKitName(null);
-            plugin.getPortalManager().savePortals();
+            plugin.getPortalManager().markDirty(portal);
             player.sendMessage(ChatColor.GREEN + "Portal kit removed");
 
             // Go back to portal GUI
-            playerPortalContext.put(player.getUniqueId(), portal);
+            session.setPortalContext(portal);
             PortalGUI.openPortalGUI(player, portal);
         } else {
             switch (slot) {
                 case 48: // Previous Page
                     if (currentPage > 0) {
                         int prevPage = currentPage - 1;
-                        playerPageContext.put(player.getUniqueId(), prevPage);
+                        session.setPage(prevPage);
                         KitSelectionGUI.openKitSelectionGUI(player, portal, prevPage);
                     }
                     break;
 
                 case 50: // Next Page
                     int nextPage = currentPage + 1;
-                    playerPageContext.put(player.getUniqueId(), nextPage);
+                    session.setPage(nextPage);
                     KitSelectionGUI.openKitSelectionGUI(player, portal, nextPage);
                     break;
 
                 case 52: // Back
                     // Go back to portal GUI
-                    playerPortalContext.put(player.getUniqueId(), portal);
+                    session.setPortalContext(portal);
                     PortalGUI.openPortalGUI(player, portal);
                     break;
 
@@ -603,47 +605,4 @@ public class GUIListener implements Listener {
             }
         }
     }
-
-    // Cleanup method to remove stale data
-    public void cleanupPlayerData(UUID playerId) {
-        playerPortalContext.remove(playerId);
-        playerPageContext.remove(playerId);
-        playerFilterContext.remove(playerId);
-        playerPendingAction.remove(playerId);
-        playerSelectedLocation.remove(playerId);
-        playerWandSelectionMode.remove(playerId);
-        playerSelectedPortal.remove(playerId);
-    }
-
-    private String generatePortalName(Player player) {
-        int count = plugin.getPortalManager().getPlayerPortals(player.getUniqueId()).size();
-        String baseName = player.getName() + "_portal_";
-        String portalName;
-        int suffix = count + 1;
-
-        do {
-            portalName = baseName + suffix;
-            suffix++;
-        } while (plugin.getPortalManager().getPortal(portalName) != null);
-
-        return portalName;
-    }
-
-    @EventHandler
-    public void onPlayerQuit(PlayerQuitEvent event) {
-        // Clean up all player data on disconnect to prevent memory leaks
-        UUID playerId = event.getPlayer().getUniqueId();
-
-        playerPortalContext.remove(playerId);
-        playerPageContext.remove(playerId);
-        playerFilterContext.remove(playerId);
-        playerPendingAction.remove(playerId);
-        playerWandSelectionMode.remove(playerId);
-        playerSelectedPortal.remove(playerId);
-        playerSelectedLocation.remove(playerId);
-
-        if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("Cleaned up data for player: " + event.getPlayer().getName());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package portals.portaltoexit.listeners;
+
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import portals.portaltoexit.Portaltoexit;
+
+/**
+ * Keeps the per-chunk player counts used by least-loaded exit selection current
+ */
+public class OccupancyListener implements Listener {
+    private final Portaltoexit plugin;
+
+    public OccupancyListener(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getOccupancyManager().update(event.getPlayer().getUniqueId(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        // Counts are per chunk; most moves stay inside one
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || (from.getBlockX() >> 4 == to.getBlockX() >> 4 && from.getBlockZ() >> 4 == to.getBlockZ() >> 4)) {
+            return;
+        }
+        plugin.getOccupancyManager().update(event.getPlayer().getUniqueId(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (event.getTo() != null) {
+            plugin.getOccupancyManager().update(event.getPlayer().getUniqueId(), event.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getOccupancyManager().update(event.getPlayer().getUniqueId(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getOccupancyManager().remove(event.getPlayer().getUniqueId());
+    }
+}
@@ -11,12 +11,23 @@ import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.utils.VersionCompatibility;
 
 public class PortalCreationListener implements Listener {
     private final Portaltoexit plugin;
+    private final VersionCompatibility.ResolvedParticle portalParticle;
+    private final VersionCompatibility.ResolvedParticle magicParticle;
+    private final VersionCompatibility.ResolvedParticle endRodParticle;
+    private final VersionCompatibility.ResolvedSound frameFillSound;
+    private final VersionCompatibility.ResolvedSound teleportSound;
 
     public PortalCreationListener(Portaltoexit plugin) {
         this.plugin = plugin;
+        this.portalParticle = VersionCompatibility.resolveParticle(VersionCompatibility.getPortalParticle());
+        this.magicParticle = VersionCompatibility.resolveParticle(VersionCompatibility.getMagicParticle());
+        this.endRodParticle = VersionCompatibility.resolveParticle("END_ROD");
+        this.frameFillSound = VersionCompatibility.resolveSound("BLOCK_END_PORTAL_FRAME_FILL");
+        this.teleportSound = VersionCompatibility.resolveSound("ENTITY_ENDERMAN_TELEPORT");
     }
 
     @EventHandler
@@ -40,17 +51,13 @@ public class PortalCreationListener implements Listener {
         }
 
         // Check if the required item is being used
-        String requiredItem = plugin.getConfigManager().getRequiredItem();
-        Material requiredMaterial = Material.matchMaterial(requiredItem);
-
+        Material requiredMaterial = plugin.getConfigManager().getRequiredItem();
         if (requiredMaterial == null || item.getType() != requiredMaterial) {
             return;
         }
 
         // Check if the block is the required base block
-        String requiredBlock = plugin.getConfigManager().getRequiredBaseBlock();
-        Material requiredBlockMaterial = Material.matchMaterial(requiredBlock);
-
+        Material requiredBlockMaterial = plugin.getConfigManager().getRequiredBaseBlock();
         if (requiredBlockMaterial == null || block.getType() != requiredBlockMaterial) {
             return;
         }
@@ -66,7 +73,7 @@ public class PortalCreationListener implements Listener {
         }
 
         // Generate portal name
-        String portalName = generatePortalName(player);
+        String portalName = plugin.getPortalManager().generatePortalName(player);
 
         // Create the portal at the block location (add 1 to Y for standing on top)
         if (plugin.getPortalManager().createPortal(player, portalName, block.getLocation().add(0.5, 1, 0.5))) {
@@ -88,39 +95,19 @@ public class PortalCreationListener implements Listener {
         }
     }
 
-    private String generatePortalName(Player player) {
-        // Generate a unique name for the portal
-        int count = plugin.getPortalManager().getPlayerPortals(player.getUniqueId()).size();
-        String baseName = player.getName() + "_portal_";
-        String portalName;
-        int suffix = count + 1;
-
-        do {
-            portalName = baseName + suffix;
-            suffix++;
-        } while (plugin.getPortalManager().getPortal(portalName) != null);
-
-        return portalName;
-    }
-
     private void playCreationEffects(org.bukkit.Location location) {
         if (plugin.getConfigManager().areParticlesEnabled()) {
             // Spawn creation particles using version compatibility
-            portals.portaltoexit.utils.VersionCompatibility.spawnParticle(
-                location, "PORTAL", 100, 0.5, 1, 0.5, 0.5);
-            portals.portaltoexit.utils.VersionCompatibility.spawnParticle(
-                location, portals.portaltoexit.utils.VersionCompatibility.getMagicParticle(), 50, 0.5, 1, 0.5, 0.1);
-            portals.portaltoexit.utils.VersionCompatibility.spawnParticle(
-                location, "END_ROD", 30, 0.3, 0.5, 0.3, 0.05);
+            portalParticle.spawn(location, 100, 0.5, 1, 0.5, 0.5);
+            magicParticle.spawn(location, 50, 0.5, 1, 0.5, 0.1);
+            endRodParticle.spawn(location, 30, 0.3, 0.5, 0.3, 0.05);
         }
 
         if (plugin.getConfigManager().areSoundsEnabled()) {
             // Play creation sound using version compatibility
-            portals.portaltoexit.utils.VersionCompatibility.playSound(
-                location, "BLOCK_END_PORTAL_FRAME_FILL", 1.0f, 1.0f);
+            frameFillSound.play(location, 1.0f, 1.0f);
             // Also try alternate sound for effect layering
-            portals.portaltoexit.utils.VersionCompatibility.playSound(
-                location, "ENTITY_ENDERMAN_TELEPORT", 0.5f, 1.5f);
+            teleportSound.play(location, 0.5f, 1.5f);
         }
     }
 }
\ No newline at end of file
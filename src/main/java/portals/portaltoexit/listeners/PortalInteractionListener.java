@@ -1,29 +1,39 @@
 package portals.portaltoexit.listeners;
 
 import org.bukkit.Location;
-import org.bukkit.Particle;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import portals.portaltoexit.Portaltoexit;
-import portals.portaltoexit.data.Portal;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import portals.portaltoexit.data.PlayerSession;
+import portals.portaltoexit.managers.PortalDetectionManager;
 
 public class PortalInteractionListener implements Listener {
     private final Portaltoexit plugin;
-    private final Map<UUID, Long> lastPortalCheck;
 
     public PortalInteractionListener(Portaltoexit plugin) {
         this.plugin = plugin;
-        this.lastPortalCheck = new HashMap<>();
     }
 
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent event) {
+        PortalDetectionManager detection = plugin.getPortalDetectionManager();
+        if (detection.isSampling()) {
+            // The sampling task does the checks; only follow players across chunks
+            Location from = event.getFrom();
+            Location to = event.getTo();
+            if (from.getBlockX() >> 4 != to.getBlockX() >> 4 || from.getBlockZ() >> 4 != to.getBlockZ() >> 4) {
+                detection.update(event.getPlayer(), to);
+            }
+            return;
+        }
+
         // Only check if player actually moved to a new block
         if (event.getFrom().getBlockX() == event.getTo().getBlockX() &&
             event.getFrom().getBlockY() == event.getTo().getBlockY() &&
@@ -35,37 +45,36 @@ public class PortalInteractionListener implements Listener {
 
         // Throttle checks to once per 250ms per player
         long currentTime = System.currentTimeMillis();
-        Long lastCheck = lastPortalCheck.get(player.getUniqueId());
-        if (lastCheck != null && currentTime - lastCheck < 250) {
-            return;
-        }
-        lastPortalCheck.put(player.getUniqueId(), currentTime);
-
-        // Check if player has permission
-        if (!player.hasPermission("portal2exit.use")) {
+        PlayerSession session = plugin.getSessionManager().get(player);
+        if (currentTime - session.getLastPortalCheck() < 250) {
             return;
         }
+        session.setLastPortalCheck(currentTime);
 
-        // Check if player is near a portal
-        Location playerLoc = player.getLocation();
-        Portal nearbyPortal = plugin.getPortalManager().getPortalAtLocation(playerLoc);
+        detection.check(player);
+    }
 
-        if (nearbyPortal != null) {
-            // Play ambient portal effects
-            if (plugin.getConfigManager().areParticlesEnabled()) {
-                playAmbientEffects(nearbyPortal.getLocation());
-            }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPortalDetectionManager().update(event.getPlayer(), event.getPlayer().getLocation());
+    }
 
-            // Check if player is close enough to use the portal (within 1 block)
-            if (playerLoc.distance(nearbyPortal.getLocation()) <= 1.0) {
-                // Teleport the player
-                plugin.getTeleportationManager().teleportPlayer(player, nearbyPortal);
-            }
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (event.getTo() != null) {
+            plugin.getPortalDetectionManager().update(event.getPlayer(), event.getTo());
         }
     }
 
-    private void playAmbientEffects(Location location) {
-        // Spawn subtle ambient particles around active portals
-        location.getWorld().spawnParticle(Particle.PORTAL, location, 5, 0.3, 0.5, 0.3, 0.01);
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getPortalDetectionManager().update(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getPortalDetectionManager().remove(event.getPlayer());
+        plugin.getTeleportQueueManager().remove(event.getPlayer().getUniqueId());
+        plugin.getTeleportationManager().forgetPlayer(event.getPlayer());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package portals.portaltoexit.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import portals.portaltoexit.Portaltoexit;
+
+/**
+ * Opens a player's session before other join handlers run and closes it after every quit handler
+ */
+public class SessionListener implements Listener {
+    private final Portaltoexit plugin;
+
+    public SessionListener(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getSessionManager().open(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getSessionManager().close(event.getPlayer().getUniqueId());
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("Cleaned up data for player: " + event.getPlayer().getName());
+        }
+    }
+}
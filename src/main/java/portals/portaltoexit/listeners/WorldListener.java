@@ -0,0 +1,32 @@
+package portals.portaltoexit.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import portals.portaltoexit.Portaltoexit;
+
+/**
+ * Loads and releases per-world portal data as worlds come and go
+ */
+public class WorldListener implements Listener {
+    private final Portaltoexit plugin;
+
+    public WorldListener(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getPortalManager().loadWorld(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getPortalManager().unloadWorld(event.getWorld());
+        plugin.getHotExitManager().releaseWorld(event.getWorld());
+        plugin.getArrivalSpreadManager().releaseWorld(event.getWorld());
+        plugin.getChunkPreloadManager().releaseWorld(event.getWorld());
+    }
+}
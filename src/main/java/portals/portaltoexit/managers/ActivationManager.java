@@ -146,28 +146,11 @@ public class ActivationManager {
     public boolean processActivation(Player player, Portal portal) {
         try {
             // Consume required items
-            if (itemRequirementsEnabled) {
-                List<Portal.RequiredItem> requiredItems = portal.getRequiredItems();
-                if (requiredItems.isEmpty()) {
-                    requiredItems = defaultRequiredItems;
-                }
-
-                if (!consumeRequiredItems(player, requiredItems)) {
-                    return false;
-                }
-            }
-
-            // Give kit if specified
-            String kitToGive = portal.getKitToGive();
-            if (kitToGive == null) {
-                kitToGive = portal.getKitName(); // Backward compatibility
-            }
-
-            if (kitToGive != null && plugin.getKitManager() != null) {
-                // Use KitManager to apply the kit (handles cooldowns, permissions, etc.)
-                plugin.getKitManager().applyKit(player, kitToGive);
+            if (takeRequiredItems(player, portal) == null) {
+                return false;
             }
 
+            giveKit(player, portal);
             return true;
         } catch (Exception e) {
             plugin.getLogger().severe("Error processing portal activation for " + player.getName() + ": " + e.getMessage());
@@ -175,6 +158,55 @@ public class ActivationManager {
         }
     }
 
+    /**
+     * Take the items a portal consumes, before the teleport starts
+     * @param player The player using the portal
+     * @param portal The portal being used
+     * @return The stacks taken (empty if nothing is consumed), for {@link #returnItems} if the teleport
+     *         does not happen, or null if the player lacks some of them
+     */
+    public List<ItemStack> takeRequiredItems(Player player, Portal portal) {
+        List<ItemStack> taken = new ArrayList<>();
+        if (!itemRequirementsEnabled) {
+            return taken;
+        }
+
+        List<Portal.RequiredItem> requiredItems = portal.getRequiredItems();
+        if (requiredItems.isEmpty()) {
+            requiredItems = defaultRequiredItems;
+        }
+
+        return consumeRequiredItems(player, requiredItems, taken) ? taken : null;
+    }
+
+    /**
+     * Hand back items taken for a teleport that did not happen; what does not fit is dropped at the player
+     */
+    public void returnItems(Player player, List<ItemStack> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        for (ItemStack leftover : player.getInventory().addItem(items.toArray(new ItemStack[0])).values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+        }
+    }
+
+    /**
+     * Give the kit a portal hands out, once the player has arrived
+     */
+    public void giveKit(Player player, Portal portal) {
+        String kitToGive = portal.getKitToGive();
+        if (kitToGive == null) {
+            kitToGive = portal.getKitName(); // Backward compatibility
+        }
+
+        if (kitToGive != null && plugin.getKitManager() != null) {
+            // Use KitManager to apply the kit (handles cooldowns, permissions, etc.)
+            plugin.getKitManager().applyKit(player, kitToGive);
+        }
+    }
+
     /**
      * Check if player has the required items
      * @param player The player to check
@@ -244,9 +276,10 @@ public class ActivationManager {
      * Consume required items from player's inventory
      * @param player The player
      * @param requiredItems List of items to consume
+     * @param taken Receives copies of the stacks taken
      * @return true if all items were consumed successfully
      */
-    private boolean consumeRequiredItems(Player player, List<Portal.RequiredItem> requiredItems) {
+    private boolean consumeRequiredItems(Player player, List<Portal.RequiredItem> requiredItems, List<ItemStack> taken) {
         // First, verify we can consume all items
         for (Portal.RequiredItem requiredItem : requiredItems) {
             if (requiredItem.shouldConsume() && !hasRequiredItem(player, requiredItem)) {
@@ -257,7 +290,7 @@ public class ActivationManager {
         // Then consume the items
         for (Portal.RequiredItem requiredItem : requiredItems) {
             if (requiredItem.shouldConsume()) {
-                consumeItem(player, requiredItem);
+                consumeItem(player, requiredItem, taken);
             }
         }
 
@@ -268,8 +301,9 @@ public class ActivationManager {
      * Consume a specific item from player's inventory
      * @param player The player
      * @param requiredItem The item to consume
+     * @param taken Receives copies of the stacks taken
      */
-    private void consumeItem(Player player, Portal.RequiredItem requiredItem) {
+    private void consumeItem(Player player, Portal.RequiredItem requiredItem, List<ItemStack> taken) {
         int amountToConsume = requiredItem.getAmount();
 
         for (int i = 0; i < player.getInventory().getSize() && amountToConsume > 0; i++) {
@@ -295,6 +329,9 @@ public class ActivationManager {
             }
 
             int consumeFromThisStack = Math.min(amountToConsume, item.getAmount());
+            ItemStack takenStack = item.clone();
+            takenStack.setAmount(consumeFromThisStack);
+            taken.add(takenStack);
             if (consumeFromThisStack >= item.getAmount()) {
                 player.getInventory().setItem(i, null);
             } else {
@@ -0,0 +1,152 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PluginSettings;
+import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.utils.SafeLocationSearch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Spreads a crowd arriving at one exit over a set of safe spots around it
+ * The spots are searched once per exit on chunk snapshots and then handed out in turn
+ * or least recently used first; each spot is re-checked live when handed out, and a
+ * spot that stopped being safe, or a search that failed or found nothing, makes the
+ * exit's spots be searched again next time
+ * Main thread only
+ */
+public class ArrivalSpreadManager {
+    private final Portaltoexit plugin;
+    private final Map<Location, SpotRing> rings = new HashMap<>();  // Keyed by the exit's block location
+
+    public ArrivalSpreadManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Pick the arrival spot for a safe exit, taking its turn in the rotation
+     * Call only for an arrival that is actually happening; see {@link #prepare}
+     * @return Future completed on the main thread with the spot, or the exit itself if no spot is usable
+     */
+    public CompletableFuture<Location> pick(Location exit, Portal.ArrivalSpread mode) {
+        if (mode == Portal.ArrivalSpread.OFF || exit.getWorld() == null) {
+            return CompletableFuture.completedFuture(exit);
+        }
+
+        Location key = new Location(exit.getWorld(), exit.getBlockX(), exit.getBlockY(), exit.getBlockZ());
+        SpotRing current = ring(key, exit);
+        return current.ready.thenApply(loaded -> {
+            Location spot = current.next(mode);
+            // A spot went bad or none were found; search again for the next arrival
+            if (current.stale && rings.get(key) == current) {
+                rings.remove(key);
+            }
+            return spot != null ? spot : exit;
+        });
+    }
+
+    /**
+     * Search an exit's spots ahead of arrivals without handing any out
+     * @return Future completed on the main thread once the spots are known
+     */
+    public CompletableFuture<Void> prepare(Location exit, Portal.ArrivalSpread mode) {
+        if (mode == Portal.ArrivalSpread.OFF || exit.getWorld() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Location key = new Location(exit.getWorld(), exit.getBlockX(), exit.getBlockY(), exit.getBlockZ());
+        return ring(key, exit).ready;
+    }
+
+    /**
+     * Forget every exit's spots, e.g. after a reload
+     */
+    public void clear() {
+        rings.clear();
+    }
+
+    /**
+     * Forget the spots of exits in an unloading world
+     */
+    public void releaseWorld(World world) {
+        rings.keySet().removeIf(key -> world.equals(key.getWorld()));
+    }
+
+    private SpotRing ring(Location key, Location exit) {
+        SpotRing ring = rings.get(key);
+        return ring != null ? ring : build(key, exit);
+    }
+
+    private SpotRing build(Location key, Location exit) {
+        PluginSettings settings = plugin.getConfigManager().getSettings();
+        SpotRing ring = new SpotRing();
+        rings.put(key, ring);
+
+        ring.ready = SafeLocationSearch.findSpread(plugin, exit, settings.getArrivalSpreadRadius(),
+                settings.getArrivalSpreadSpots(), settings.getArrivalSpreadSpacing(), settings.getMaterialSafety())
+                .handle((spots, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Arrival spot search failed: " + error.getMessage());
+                    }
+                    ring.setSpots(spots);
+                    return null;
+                });
+        return ring;
+    }
+
+    /**
+     * The spots around one exit and when each was last handed out
+     */
+    private class SpotRing {
+        private CompletableFuture<Void> ready;
+        private Location[] spots = new Location[0];
+        private long[] lastUsed = new long[0];
+        private int cursor;
+        private long uses;  // Hand-out counter used as the recency clock
+        private boolean stale;
+
+        void setSpots(List<Location> found) {
+            if (found == null || found.isEmpty()) {
+                // Nothing to hand out; the blocks may change, so do not keep this result
+                stale = true;
+                return;
+            }
+            spots = found.toArray(new Location[0]);
+            lastUsed = new long[spots.length];
+        }
+
+        // Next spot that is still safe, or null if none is
+        Location next(Portal.ArrivalSpread mode) {
+            boolean[] rejected = new boolean[spots.length];
+            for (int tries = 0; tries < spots.length; tries++) {
+                int index = mode == Portal.ArrivalSpread.LEAST_RECENT ? leastRecent(rejected) : Math.floorMod(cursor++, spots.length);
+                if (rejected[index]) {
+                    continue;
+                }
+
+                lastUsed[index] = ++uses;
+                if (plugin.getTeleportationManager().isSafeLocation(spots[index])) {
+                    return spots[index].clone();
+                }
+                rejected[index] = true;
+                stale = true;
+            }
+            return null;
+        }
+
+        private int leastRecent(boolean[] rejected) {
+            int best = 0;
+            for (int i = 0; i < spots.length; i++) {
+                if (!rejected[i] && (rejected[best] || lastUsed[i] < lastUsed[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PortalSpatialIndex;
+import portals.portaltoexit.utils.LongObjectMap;
+import portals.portaltoexit.utils.VersionCompatibility;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads destination chunks ahead of teleports and keeps them loaded while they are held
+ * Paper loads chunks asynchronously; elsewhere missing chunks are loaded one per tick
+ * Loads of the same chunk are shared, and plugin chunk tickets are reference counted,
+ * so any number of holders can wait on and hold a chunk
+ * Main thread only
+ */
+public class ChunkPreloadManager {
+    private final Portaltoexit plugin;
+    private final Map<UUID, LongObjectMap<int[]>> ticketCounts = new HashMap<>();
+    private final Map<UUID, LongObjectMap<CompletableFuture<Void>>> loading = new HashMap<>();  // In-flight loads per chunk
+    private final Deque<PendingLoad> syncLoads = new ArrayDeque<>();
+    private BukkitTask syncLoadTask;
+
+    public ChunkPreloadManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load every chunk within the block radius of the location and hold it until released
+     */
+    public Area hold(Location center, int radius) {
+        return hold(new Area(center.getWorld(),
+                (center.getBlockX() - radius) >> 4, (center.getBlockZ() - radius) >> 4,
+                (center.getBlockX() + radius) >> 4, (center.getBlockZ() + radius) >> 4));
+    }
+
+    /**
+     * Load a single chunk and hold it until released
+     */
+    public Area holdChunk(World world, int chunkX, int chunkZ) {
+        return hold(new Area(world, chunkX, chunkZ, chunkX, chunkZ));
+    }
+
+    private Area hold(Area area) {
+        World world = area.world;
+
+        List<int[]> missing = new ArrayList<>();
+        for (int cx = area.minChunkX; cx <= area.maxChunkX; cx++) {
+            for (int cz = area.minChunkZ; cz <= area.maxChunkZ; cz++) {
+                if (!world.isChunkLoaded(cx, cz)) {
+                    missing.add(new int[]{cx, cz});
+                }
+            }
+        }
+
+        load(world, missing).whenComplete((ignored, error) -> {
+            if (error != null) {
+                area.ready.completeExceptionally(error);
+                return;
+            }
+            // Tickets are only added once loaded; adding one to an unloaded chunk loads it synchronously
+            if (!area.released) {
+                forEachChunk(area, this::addTicket);
+                area.held = true;
+            }
+            area.ready.complete(null);
+        });
+        return area;
+    }
+
+    /**
+     * Stop holding an area; its chunks may unload once no other holder needs them
+     */
+    public void release(Area area) {
+        if (area.released) {
+            return;
+        }
+        area.released = true;
+        if (area.held) {
+            forEachChunk(area, this::removeTicket);
+        }
+    }
+
+    /**
+     * Drop every ticket this plugin holds, e.g. on disable
+     * Loads still waiting fail, so nothing waits on them forever
+     */
+    public void releaseAll() {
+        if (syncLoadTask != null) {
+            syncLoadTask.cancel();
+            syncLoadTask = null;
+        }
+        CancellationException cancelled = new CancellationException("Chunk loading stopped");
+        for (PendingLoad load : syncLoads) {
+            load.future.completeExceptionally(cancelled);
+        }
+        syncLoads.clear();
+        for (LongObjectMap<CompletableFuture<Void>> inFlight : new ArrayList<>(loading.values())) {
+            failAll(inFlight, cancelled);
+        }
+        loading.clear();
+        for (World world : plugin.getServer().getWorlds()) {
+            world.removePluginChunkTickets(plugin);
+        }
+        ticketCounts.clear();
+    }
+
+    /**
+     * Drop the bookkeeping for an unloading world; its tickets go with it
+     * Loads still waiting in the world fail, so nothing waits on them forever
+     */
+    public void releaseWorld(World world) {
+        CancellationException cancelled = new CancellationException("World " + world.getName() + " unloaded");
+        ticketCounts.remove(world.getUID());
+        syncLoads.removeIf(load -> {
+            if (!load.world.equals(world)) {
+                return false;
+            }
+            load.future.completeExceptionally(cancelled);
+            return true;
+        });
+        LongObjectMap<CompletableFuture<Void>> inFlight = loading.remove(world.getUID());
+        if (inFlight != null) {
+            failAll(inFlight, cancelled);
+        }
+    }
+
+    private static void failAll(LongObjectMap<CompletableFuture<Void>> inFlight, CancellationException cancelled) {
+        // Completing a future removes it from the map, so fail a copy
+        List<CompletableFuture<Void>> futures = new ArrayList<>(inFlight.size());
+        inFlight.forEach((key, future) -> futures.add(future));
+        for (CompletableFuture<Void> future : futures) {
+            future.completeExceptionally(cancelled);
+        }
+    }
+
+    private CompletableFuture<Void> load(World world, List<int[]> chunks) {
+        if (chunks.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[chunks.size()];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = loadChunk(world, chunks.get(i)[0], chunks.get(i)[1]);
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    // One load per chunk at a time, shared by every holder waiting for it
+    private CompletableFuture<Void> loadChunk(World world, int chunkX, int chunkZ) {
+        LongObjectMap<CompletableFuture<Void>> inFlight = loading.computeIfAbsent(world.getUID(), id -> new LongObjectMap<>());
+        long key = PortalSpatialIndex.chunkKey(chunkX, chunkZ);
+        CompletableFuture<Void> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<Void> future;
+        if (VersionCompatibility.hasAsyncChunkLoading()) {
+            future = VersionCompatibility.getChunkAtAsync(world, chunkX, chunkZ).thenApply(chunk -> null);
+        } else {
+            future = new CompletableFuture<>();
+            syncLoads.addLast(new PendingLoad(world, chunkX, chunkZ, future));
+            startSyncLoads();
+        }
+
+        inFlight.put(key, future);
+        future.whenComplete((ignored, error) -> {
+            if (inFlight.get(key) == future) {
+                inFlight.remove(key);
+            }
+        });
+        return future;
+    }
+
+    // Without async loading, chunks are loaded one per tick in request order so a rush never stalls a tick
+    private void startSyncLoads() {
+        if (syncLoadTask != null) {
+            return;
+        }
+
+        syncLoadTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            PendingLoad load = syncLoads.pollFirst();
+            if (load == null) {
+                syncLoadTask.cancel();
+                syncLoadTask = null;
+                return;
+            }
+
+            try {
+                load.world.getChunkAt(load.chunkX, load.chunkZ);
+                load.future.complete(null);
+            } catch (RuntimeException e) {
+                load.future.completeExceptionally(e);
+            }
+        }, 0L, 1L);
+    }
+
+    private void addTicket(World world, int chunkX, int chunkZ) {
+        int[] count = ticketCounts.computeIfAbsent(world.getUID(), id -> new LongObjectMap<>())
+                .computeIfAbsent(PortalSpatialIndex.chunkKey(chunkX, chunkZ), k -> new int[1]);
+        if (count[0]++ == 0) {
+            world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+        }
+    }
+
+    private void removeTicket(World world, int chunkX, int chunkZ) {
+        LongObjectMap<int[]> counts = ticketCounts.get(world.getUID());
+        long key = PortalSpatialIndex.chunkKey(chunkX, chunkZ);
+        int[] count = counts != null ? counts.get(key) : null;
+        if (count == null) {
+            return;
+        }
+
+        if (--count[0] == 0) {
+            counts.remove(key);
+            world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+        }
+    }
+
+    private static void forEachChunk(Area area, ChunkConsumer consumer) {
+        for (int cx = area.minChunkX; cx <= area.maxChunkX; cx++) {
+            for (int cz = area.minChunkZ; cz <= area.maxChunkZ; cz++) {
+                consumer.accept(area.world, cx, cz);
+            }
+        }
+    }
+
+    private interface ChunkConsumer {
+        void accept(World world, int chunkX, int chunkZ);
+    }
+
+    private static class PendingLoad {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final CompletableFuture<Void> future;
+
+        PendingLoad(World world, int chunkX, int chunkZ, CompletableFuture<Void> future) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.future = future;
+        }
+    }
+
+    /**
+     * A held block of chunks
+     */
+    public static final class Area {
+        private final World world;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int maxChunkX;
+        private final int maxChunkZ;
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private boolean held;
+        private boolean released;
+
+        private Area(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+            this.world = world;
+            this.minChunkX = minChunkX;
+            this.minChunkZ = minChunkZ;
+            this.maxChunkX = maxChunkX;
+            this.maxChunkZ = maxChunkZ;
+        }
+
+        /**
+         * @return Future completed on the main thread once every chunk is loaded
+         */
+        public CompletableFuture<Void> getReady() {
+            return ready;
+        }
+    }
+}
@@ -1,145 +1,211 @@
 package portals.portaltoexit.managers;
 
-import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
 import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PluginSettings;
+import portals.portaltoexit.utils.MaterialSafety;
+import portals.portaltoexit.utils.MessageTemplate;
+
+import java.util.*;
 
 public class ConfigManager {
+    // Placeholders the plugin fills in; anything else in a message is reported at load
+    private static final Set<String> KNOWN_PLACEHOLDERS = new HashSet<>(Arrays.asList(
+            "name", "seconds", "max", "items", "permission", "kit", "amount", "time", "usage", "location", "position"));
+    private static final String[] MESSAGE_SECTIONS = {"messages", "commands"};
+    private static final String[] NO_REPLACEMENTS = new String[0];
+
     private final Portaltoexit plugin;
+    private volatile PluginSettings settings;  // Swapped as a whole on reload
+    private volatile Map<String, MessageTemplate> messages;  // Full path (and short key for "messages.") -> template
 
     public ConfigManager(Portaltoexit plugin) {
         this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Get the current settings snapshot; hold on to it to read several values consistently
+     */
+    public PluginSettings getSettings() {
+        return settings;
+    }
+
+    public void reload() {
         plugin.reloadConfig();
+        settings = PluginSettings.load(plugin.getConfig(), plugin.getLogger());
+        messages = compileMessages(plugin.getConfig());
+    }
+
+    private Map<String, MessageTemplate> compileMessages(FileConfiguration config) {
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        for (String sectionName : MESSAGE_SECTIONS) {
+            ConfigurationSection section = config.getConfigurationSection(sectionName);
+            if (section == null) {
+                continue;
+            }
+
+            for (String key : section.getKeys(true)) {
+                if (!section.isString(key)) {
+                    continue;
+                }
+
+                String path = sectionName + "." + key;
+                MessageTemplate template = MessageTemplate.compile(section.getString(key));
+                for (String placeholder : template.getPlaceholderNames()) {
+                    if (!KNOWN_PLACEHOLDERS.contains(placeholder)) {
+                        plugin.getLogger().warning("Unknown placeholder {" + placeholder + "} in message " + path);
+                    }
+                }
+
+                compiled.put(path, template);
+                if (sectionName.equals("messages")) {
+                    compiled.put(key, template);
+                }
+            }
+        }
+        return compiled;
     }
 
     public boolean isDebug() {
-        return plugin.getConfig().getBoolean("plugin.debug", false);
+        return settings.isDebug();
     }
 
     public int getAutoSaveInterval() {
-        return plugin.getConfig().getInt("plugin.auto-save-interval", 5);
+        return settings.getAutoSaveInterval();
+    }
+
+    public int getSaveWindowSeconds() {
+        return settings.getSaveWindowSeconds();
+    }
+
+    public String getStorageType() {
+        return settings.getStorageType();
+    }
+
+    public int getJournalCompactInterval() {
+        return settings.getJournalCompactInterval();
+    }
+
+    public int getJournalCompactThresholdKb() {
+        return settings.getJournalCompactThresholdKb();
     }
 
     public int getMaxPortalsPerPlayer() {
-        return plugin.getConfig().getInt("portals.max-portals-per-player", 10);
+        return settings.getMaxPortalsPerPlayer();
     }
 
     public int getCooldownSeconds() {
-        return plugin.getConfig().getInt("portals.cooldown", 3);
+        return settings.getCooldownSeconds();
     }
 
     public boolean areSoundsEnabled() {
-        return plugin.getConfig().getBoolean("portals.sounds-enabled", true);
+        return settings.areSoundsEnabled();
     }
 
     public boolean areParticlesEnabled() {
-        return plugin.getConfig().getBoolean("portals.particles-enabled", true);
+        return settings.areParticlesEnabled();
     }
 
-    public String getRequiredItem() {
-        return plugin.getConfig().getString("portals.creation.required-item", "minecraft:ender_eye");
+    public Material getRequiredItem() {
+        return settings.getRequiredItem();
     }
 
-    public String getRequiredBaseBlock() {
-        return plugin.getConfig().getString("portals.creation.required-base-block", "minecraft:obsidian");
+    public Material getRequiredBaseBlock() {
+        return settings.getRequiredBaseBlock();
     }
 
     public boolean shouldConsumeItem() {
-        return plugin.getConfig().getBoolean("portals.creation.consume-item", true);
+        return settings.shouldConsumeItem();
     }
 
     public String getDefaultExitType() {
-        return plugin.getConfig().getString("exit-portals.default-exit-type", "spawn");
+        return settings.getDefaultExitType();
     }
 
     public Location getCustomExitLocation() {
-        ConfigurationSection section = plugin.getConfig().getConfigurationSection("exit-portals.custom-exit");
-        if (section == null) return null;
+        PluginSettings current = settings;
+        if (current.getCustomExitWorld() == null) return null;
 
-        String worldName = section.getString("world", "world");
-        double x = section.getDouble("x", 0);
-        double y = section.getDouble("y", 64);
-        double z = section.getDouble("z", 0);
-        float yaw = (float) section.getDouble("yaw", 0);
-        float pitch = (float) section.getDouble("pitch", 0);
-
-        return new Location(plugin.getServer().getWorld(worldName), x, y, z, yaw, pitch);
+        // The world may load after the config, so only the name is resolved per call
+        World world = plugin.getServer().getWorld(current.getCustomExitWorld());
+        return new Location(world, current.getCustomExitX(), current.getCustomExitY(), current.getCustomExitZ(),
+                current.getCustomExitYaw(), current.getCustomExitPitch());
     }
 
     public boolean isSafetyCheckEnabled() {
-        return plugin.getConfig().getBoolean("teleportation.safety-checks", true);
+        return settings.isSafetyCheckEnabled();
     }
 
     public boolean shouldFindSafeLocation() {
-        return plugin.getConfig().getBoolean("teleportation.find-safe-location", true);
+        return settings.shouldFindSafeLocation();
     }
 
     public int getSafeLocationSearchRadius() {
-        return plugin.getConfig().getInt("teleportation.safe-location-search-radius", 5);
+        return settings.getSafeLocationSearchRadius();
+    }
+
+    public MaterialSafety getMaterialSafety() {
+        return settings.getMaterialSafety();
     }
 
     public String getMessage(String key) {
-        // Check if key already has a full path
-        if (key.startsWith("commands.") || key.startsWith("messages.")) {
-            return ChatColor.translateAlternateColorCodes('&',
-                plugin.getConfig().getString(key, "Message not found: " + key));
-        }
-        // Default to messages prefix
-        return ChatColor.translateAlternateColorCodes('&',
-            plugin.getConfig().getString("messages." + key, "Message not found: " + key));
+        return getMessage(key, NO_REPLACEMENTS);
     }
 
+    /**
+     * Render a message
+     * @param key Key under "messages", or a full "messages."/"commands." path
+     * @param replacements Alternating placeholder tokens and values, e.g. "{name}", name
+     */
     public String getMessage(String key, String... replacements) {
-        String message = getMessage(key);
-        for (int i = 0; i < replacements.length; i += 2) {
-            if (i + 1 < replacements.length) {
-                message = message.replace(replacements[i], replacements[i + 1]);
-            }
+        MessageTemplate template = messages.get(key);
+        if (template == null) {
+            return "Message not found: " + key;
         }
-        return message;
-    }
-
-    public void reload() {
-        plugin.reloadConfig();
+        return template.render(replacements);
     }
 
     // Portal particle effects configuration
     public boolean arePortalParticlesEnabled() {
-        return plugin.getConfig().getBoolean("portal-effects.ambient-particles.enabled", true);
+        return settings.arePortalParticlesEnabled();
     }
 
     public double getPortalParticleRadius() {
-        return plugin.getConfig().getDouble("portal-effects.ambient-particles.radius", 2.0);
+        return settings.getPortalParticleRadius();
     }
 
     public int getPortalParticleDensity() {
-        return plugin.getConfig().getInt("portal-effects.ambient-particles.density", 10);
+        return settings.getPortalParticleDensity();
     }
 
     public double getPortalParticleHeight() {
-        return plugin.getConfig().getDouble("portal-effects.ambient-particles.height", 3.0);
+        return settings.getPortalParticleHeight();
     }
 
     // Economy configuration
     public boolean isEconomyEnabled() {
-        return plugin.getConfig().getBoolean("economy.enabled", false);
+        return settings.isEconomyEnabled();
     }
 
     public double getDefaultPortalCost() {
-        return plugin.getConfig().getDouble("economy.default-cost", 100.0);
+        return settings.getDefaultPortalCost();
     }
 
     public double getOwnerRevenuePercentage() {
-        return plugin.getConfig().getDouble("economy.owner-gets-percentage", 0.1);
+        return settings.getOwnerRevenuePercentage();
     }
 
     // Kit configuration
     public boolean areKitsEnabled() {
-        return plugin.getConfig().getBoolean("kits.enabled", false);
+        return settings.areKitsEnabled();
     }
 
     public boolean shouldClearInventoryForKits() {
-        return plugin.getConfig().getBoolean("kits.clear-inventory", false);
+        return settings.shouldClearInventoryForKits();
     }
-}
\ No newline at end of file
+}
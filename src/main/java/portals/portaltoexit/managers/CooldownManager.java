@@ -1,62 +1,297 @@
 package portals.portaltoexit.managers;
 
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.Kit;
+import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.storage.CooldownFile;
+import portals.portaltoexit.utils.CooldownTable;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Cooldowns for portal use and kits, stored as expiry deadlines per player and scope
+ * A scope is a small int: the shared portal scope, one per portal (when portal cooldowns
+ * are per portal) and one per kit. Checks read a deadline from a primitive table without
+ * allocating; a hashed timing wheel with one-second slots removes expired entries in bulk,
+ * so cooldowns of players who never come back do not pile up
+ * Active cooldowns are saved by the write-behind saver (see PersistenceManager)
+ * Main thread only
+ */
 public class CooldownManager {
-    private final Map<UUID, Long> cooldowns;
-    private final ConfigManager configManager;
+    public static final int GLOBAL_PORTAL_SCOPE = 0;
+    private static final long PERMANENT = Long.MAX_VALUE;  // Deadline of one-time claims
+
+    private static final int WHEEL_SLOTS = 512;  // Power of two; one rotation spans about 8.5 minutes
+    private static final long SLOT_MILLIS = 1000L;
+
+    private final Portaltoexit plugin;
+    private final CooldownTable cooldowns = new CooldownTable();
+    private final Map<String, Integer> portalScopes = new HashMap<>();  // Lower-case portal name -> scope
+    private final Map<String, Integer> kitScopes = new HashMap<>();  // Lower-case kit name -> scope
+    private final WheelSlot[] wheel = new WheelSlot[WHEEL_SLOTS];
+    private int nextScope = GLOBAL_PORTAL_SCOPE + 1;
+    private long sweptSlot;  // Last slot time the wheel has swept
+    private boolean dirty;  // Changed since the last snapshot
+    private BukkitTask sweepTask;
+
+    public CooldownManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new WheelSlot();
+        }
+        this.sweptSlot = System.currentTimeMillis() / SLOT_MILLIS;
+    }
+
+    /**
+     * Start sweeping expired cooldowns once a second
+     */
+    public void start() {
+        sweepTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::sweep, 20L, 20L);
+    }
 
-    public CooldownManager(ConfigManager configManager) {
-        this.cooldowns = new HashMap<>();
-        this.configManager = configManager;
+    public void shutdown() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
     }
 
-    public boolean isOnCooldown(UUID playerId) {
-        if (!cooldowns.containsKey(playerId)) {
-            return false;
+    /**
+     * @return Scope of a portal's use cooldown: its own, or the shared one
+     */
+    public int getPortalScope(Portal portal) {
+        if (!plugin.getConfigManager().getSettings().isCooldownPerPortal()) {
+            return GLOBAL_PORTAL_SCOPE;
         }
 
-        long lastUsed = cooldowns.get(playerId);
-        long cooldownMs = configManager.getCooldownSeconds() * 1000L;
-        long currentTime = System.currentTimeMillis();
+        // Scopes are never reassigned, so the portal keeps the one resolved from its name
+        int scope = portal.getCooldownScope();
+        if (scope < 0) {
+            scope = scopeOf(portalScopes, portal.getName().toLowerCase());
+            portal.setCooldownScope(scope);
+        }
+        return scope;
+    }
 
-        if (currentTime - lastUsed >= cooldownMs) {
-            cooldowns.remove(playerId);
-            return false;
+    /**
+     * @return Scope of a kit's cooldown
+     */
+    public int getKitScope(Kit kit) {
+        int scope = kit.getCooldownScope();
+        if (scope < 0) {
+            scope = scopeOf(kitScopes, kit.getName().toLowerCase());
+            kit.setCooldownScope(scope);
         }
+        return scope;
+    }
 
-        return true;
+    public boolean isOnCooldown(UUID playerId, int scope) {
+        return getDeadline(playerId, scope) > System.currentTimeMillis();
     }
 
-    public void setCooldown(UUID playerId) {
-        cooldowns.put(playerId, System.currentTimeMillis());
+    /**
+     * @return Whole seconds left, rounded up, or 0 if not on cooldown
+     */
+    public int getRemainingCooldown(UUID playerId, int scope) {
+        long remainingMs = getDeadline(playerId, scope) - System.currentTimeMillis();
+        return remainingMs <= 0 ? 0 : (int) Math.ceil(remainingMs / 1000.0);
     }
 
-    public int getRemainingCooldown(UUID playerId) {
-        if (!cooldowns.containsKey(playerId)) {
-            return 0;
+    /**
+     * Start a cooldown of the given length; a non-positive length clears it
+     */
+    public void setCooldown(UUID playerId, int scope, long durationMillis) {
+        if (durationMillis <= 0) {
+            clearCooldown(playerId, scope);
+            return;
         }
 
-        long lastUsed = cooldowns.get(playerId);
-        long cooldownMs = configManager.getCooldownSeconds() * 1000L;
-        long currentTime = System.currentTimeMillis();
-        long remainingMs = cooldownMs - (currentTime - lastUsed);
+        put(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), scope,
+                System.currentTimeMillis() + durationMillis);
+    }
 
-        if (remainingMs <= 0) {
-            cooldowns.remove(playerId);
-            return 0;
-        }
+    /**
+     * Block a scope for good, e.g. a one-time kit that was claimed
+     */
+    public void setPermanent(UUID playerId, int scope) {
+        put(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), scope, PERMANENT);
+    }
+
+    /**
+     * Start the portal use cooldown configured in the config
+     */
+    public void setPortalCooldown(UUID playerId, Portal portal) {
+        setCooldown(playerId, getPortalScope(portal), plugin.getConfigManager().getCooldownSeconds() * 1000L);
+    }
 
-        return (int) Math.ceil(remainingMs / 1000.0);
+    public void clearCooldown(UUID playerId, int scope) {
+        // A stale wheel entry no longer matches the table and is dropped when its slot is swept
+        dirty |= cooldowns.remove(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), scope);
     }
 
-    public void clearCooldown(UUID playerId) {
-        cooldowns.remove(playerId);
+    public void clearPlayerCooldowns(UUID playerId) {
+        cooldowns.removePlayer(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        dirty = true;
     }
 
     public void clearAllCooldowns() {
         cooldowns.clear();
+        dirty = true;
+        for (WheelSlot slot : wheel) {
+            slot.size = 0;
+        }
+    }
+
+    /**
+     * @return Whether cooldowns were set or cleared since the last snapshot
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Capture the active cooldowns for saving, with each scope named so it survives a restart
+     */
+    public CooldownFile.Contents snapshot() {
+        dirty = false;
+        CooldownFile.Contents contents = new CooldownFile.Contents();
+        contents.addScope(GLOBAL_PORTAL_SCOPE, "portal");
+        portalScopes.forEach((name, scope) -> contents.addScope(scope, "portal:" + name));
+        kitScopes.forEach((name, scope) -> contents.addScope(scope, "kit:" + name));
+
+        long now = System.currentTimeMillis();
+        cooldowns.forEach((most, least, scope, deadline) -> {
+            if (deadline > now) {
+                contents.addRecord(most, least, scope, deadline);
+            }
+        });
+        return contents;
+    }
+
+    /**
+     * Bring back saved cooldowns, mapping their scope names onto this run's scopes
+     */
+    public void restore(CooldownFile.Contents contents) {
+        Map<Integer, Integer> scopeMap = new HashMap<>();
+        for (int i = 0; i < contents.getScopeCount(); i++) {
+            String name = contents.getScopeName(i);
+            int scope;
+            if (name.equals("portal")) {
+                scope = GLOBAL_PORTAL_SCOPE;
+            } else if (name.startsWith("portal:")) {
+                scope = scopeOf(portalScopes, name.substring("portal:".length()));
+            } else if (name.startsWith("kit:")) {
+                scope = scopeOf(kitScopes, name.substring("kit:".length()));
+            } else {
+                continue;  // Written by a newer version
+            }
+            scopeMap.put(contents.getScopeId(i), scope);
+        }
+
+        for (int i = 0; i < contents.getRecordCount(); i++) {
+            Integer scope = scopeMap.get(contents.getScope(i));
+            if (scope != null) {
+                put(contents.getMostBits(i), contents.getLeastBits(i), scope, contents.getExpiry(i));
+            }
+        }
+        dirty = false;
+    }
+
+    private void put(long most, long least, int scope, long deadline) {
+        cooldowns.put(most, least, scope, deadline);
+        if (deadline != PERMANENT) {
+            wheel[slotIndex(slotTime(deadline))].add(most, least, scope, deadline);
+        }
+        dirty = true;
+    }
+
+    private long getDeadline(UUID playerId, int scope) {
+        return cooldowns.get(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), scope);
+    }
+
+    private int scopeOf(Map<String, Integer> scopes, String name) {
+        Integer scope = scopes.get(name);
+        if (scope == null) {
+            scope = nextScope++;
+            scopes.put(name, scope);
+        }
+        return scope;
+    }
+
+    // Sweep every slot whose time has passed; after a long stall one rotation covers them all
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        long currentSlot = now / SLOT_MILLIS;
+        if (currentSlot - sweptSlot > WHEEL_SLOTS) {
+            sweptSlot = currentSlot - WHEEL_SLOTS;
+        }
+
+        while (sweptSlot < currentSlot) {
+            sweptSlot++;
+            wheel[slotIndex(sweptSlot)].sweep(cooldowns, now);
+        }
+    }
+
+    // Slot time at or after the deadline, so a swept entry has always expired unless it is a later rotation's
+    private static long slotTime(long deadline) {
+        return (deadline + SLOT_MILLIS - 1) / SLOT_MILLIS;
+    }
+
+    private static int slotIndex(long slotTime) {
+        return (int) (slotTime & (WHEEL_SLOTS - 1));
+    }
+
+    /**
+     * Cooldowns due in one slot of the wheel, packed four longs per entry
+     */
+    private static final class WheelSlot {
+        private long[] entries = new long[0];
+        private int size;  // In entries
+
+        void add(long most, long least, int scope, long deadline) {
+            if ((size + 1) * 4 > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(16, entries.length * 2));
+            }
+            int base = size++ * 4;
+            entries[base] = most;
+            entries[base + 1] = least;
+            entries[base + 2] = scope;
+            entries[base + 3] = deadline;
+        }
+
+        // Remove expired cooldowns from the table; keep entries due in a later rotation
+        void sweep(CooldownTable cooldowns, long now) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int base = i * 4;
+                long most = entries[base];
+                long least = entries[base + 1];
+                int scope = (int) entries[base + 2];
+                long deadline = entries[base + 3];
+                if (cooldowns.get(most, least, scope) != deadline) {
+                    continue;  // Replaced or cleared since
+                }
+
+                if (deadline <= now) {
+                    cooldowns.remove(most, least, scope);
+                } else {
+                    int target = kept++ * 4;
+                    entries[target] = most;
+                    entries[target + 1] = least;
+                    entries[target + 2] = scope;
+                    entries[target + 3] = deadline;
+                }
+            }
+            size = kept;
+
+            // Let a slot that held a burst shrink back
+            if (size == 0 && entries.length > 64) {
+                entries = new long[0];
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -124,6 +124,16 @@ public class EconomyManager {
             return false;
         }
 
+        payOwnerShare(user, portalOwner, cost, ownerPercentage);
+        return true;
+    }
+
+    /**
+     * Pay the portal owner their share of a fare already withdrawn from the user
+     */
+    public void payOwnerShare(Player user, UUID portalOwner, double cost, double ownerPercentage) {
+        if (!isEnabled()) return;
+
         // Calculate owner's cut
         if (ownerPercentage > 0 && !user.getUniqueId().equals(portalOwner)) {
             double ownerCut = cost * ownerPercentage;
@@ -135,8 +145,6 @@ public class EconomyManager {
                     user.getName(), cost, ownerCut));
             }
         }
-
-        return true;
     }
 
     /**
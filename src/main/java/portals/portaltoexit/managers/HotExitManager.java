@@ -0,0 +1,149 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PluginSettings;
+import portals.portaltoexit.data.PortalSpatialIndex;
+import portals.portaltoexit.utils.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the chunks of the most used exit destinations loaded
+ * Every arrival adds one to its chunk's score; at each evaluation all scores are
+ * multiplied by the decay factor (aging) and the highest-scoring chunks within the
+ * budget are held with chunk tickets, while chunks that fell out of the top are released
+ * Main thread only
+ */
+public class HotExitManager {
+    private static final double FORGET_BELOW = 0.01;  // Scores this low are dropped unless held
+
+    private final Portaltoexit plugin;
+    private final Map<UUID, LongObjectMap<Usage>> usage = new HashMap<>();
+    private BukkitTask evaluateTask;
+
+    public HotExitManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start periodic evaluation if enabled in the config
+     */
+    public void start() {
+        PluginSettings settings = plugin.getConfigManager().getSettings();
+        if (!settings.areHotExitsEnabled()) {
+            return;
+        }
+
+        long ticks = settings.getHotExitEvaluateInterval() * 20L;
+        evaluateTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::evaluate, ticks, ticks);
+    }
+
+    public void shutdown() {
+        if (evaluateTask != null) {
+            evaluateTask.cancel();
+            evaluateTask = null;
+        }
+        releaseAll();
+    }
+
+    /**
+     * Count an arrival at an exit destination
+     */
+    public void recordArrival(Location destination) {
+        if (evaluateTask == null || destination.getWorld() == null) {
+            return;
+        }
+
+        int chunkX = destination.getBlockX() >> 4;
+        int chunkZ = destination.getBlockZ() >> 4;
+        UUID worldId = destination.getWorld().getUID();
+        usage.computeIfAbsent(worldId, id -> new LongObjectMap<>())
+                .computeIfAbsent(PortalSpatialIndex.chunkKey(chunkX, chunkZ), k -> new Usage(worldId, chunkX, chunkZ))
+                .score += 1;
+    }
+
+    /**
+     * Forget an unloading world; its tickets go with it
+     */
+    public void releaseWorld(World world) {
+        usage.remove(world.getUID());
+    }
+
+    /**
+     * Age every score, then hold the top chunks within the budget and release the rest
+     */
+    public void evaluate() {
+        PluginSettings settings = plugin.getConfigManager().getSettings();
+        double decay = settings.getHotExitDecay();
+
+        List<Usage> ranked = new ArrayList<>();
+        for (LongObjectMap<Usage> chunks : usage.values()) {
+            List<Long> forgotten = new ArrayList<>();
+            chunks.forEach((key, chunk) -> {
+                chunk.score *= decay;
+                if (chunk.score < FORGET_BELOW && chunk.area == null) {
+                    forgotten.add(key);
+                } else {
+                    ranked.add(chunk);
+                }
+            });
+            for (long key : forgotten) {
+                chunks.remove(key);
+            }
+        }
+        usage.values().removeIf(LongObjectMap::isEmpty);
+
+        ranked.sort((a, b) -> Double.compare(b.score, a.score));
+        int budget = settings.getHotExitMaxChunks();
+        for (int i = 0; i < ranked.size(); i++) {
+            Usage chunk = ranked.get(i);
+            boolean hot = i < budget && chunk.score >= FORGET_BELOW;
+            if (hot && chunk.area == null) {
+                World world = plugin.getServer().getWorld(chunk.worldId);
+                if (world != null) {
+                    chunk.area = plugin.getChunkPreloadManager().holdChunk(world, chunk.chunkX, chunk.chunkZ);
+                }
+            } else if (!hot && chunk.area != null) {
+                plugin.getChunkPreloadManager().release(chunk.area);
+                chunk.area = null;
+            }
+        }
+
+        if (settings.isDebug()) {
+            plugin.getLogger().info("Hot exits: holding " + Math.min(budget, ranked.size()) + " of " + ranked.size() + " tracked chunks");
+        }
+    }
+
+    private void releaseAll() {
+        for (LongObjectMap<Usage> chunks : usage.values()) {
+            chunks.forEach((key, chunk) -> {
+                if (chunk.area != null) {
+                    plugin.getChunkPreloadManager().release(chunk.area);
+                    chunk.area = null;
+                }
+            });
+        }
+        usage.clear();
+    }
+
+    private static class Usage {
+        private final UUID worldId;
+        private final int chunkX;
+        private final int chunkZ;
+        private double score;
+        private ChunkPreloadManager.Area area;  // Non-null while the chunk is held
+
+        Usage(UUID worldId, int chunkX, int chunkZ) {
+            this.worldId = worldId;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+}
@@ -18,13 +18,11 @@ import java.util.UUID;
 public class KitManager {
     private final Portaltoexit plugin;
     private final Map<String, Kit> kits;
-    private final Map<UUID, Map<String, Long>> kitCooldowns;  // Player -> Kit -> Last use time
     private final File kitsFile;
 
     public KitManager(Portaltoexit plugin) {
         this.plugin = plugin;
         this.kits = new HashMap<>();
-        this.kitCooldowns = new HashMap<>();
         this.kitsFile = new File(plugin.getDataFolder(), "kits.yml");
         loadKits();
     }
@@ -96,9 +94,15 @@ public class KitManager {
             return false;
         }
 
+        // One-time kits can only ever be claimed once
+        if (kit.getCooldown() < 0 && isOnCooldown(player, kit)) {
+            player.sendMessage(plugin.getConfigManager().getMessage("kit-one-time"));
+            return false;
+        }
+
         // Check cooldown
-        if (isOnCooldown(player, kitName)) {
-            int remaining = getRemainingCooldown(player, kitName);
+        if (isOnCooldown(player, kit)) {
+            int remaining = getRemainingCooldown(player, kit);
             player.sendMessage(plugin.getConfigManager().getMessage("kit-cooldown",
                 "{kit}", kit.getName(),
                 "{time}", String.valueOf(remaining)));
@@ -123,7 +127,7 @@ public class KitManager {
         kit.applyToPlayer(player);
 
         // Set cooldown
-        setCooldown(player, kitName, kit.getCooldown());
+        setCooldown(player, kit);
 
         // Send success message
         player.sendMessage(plugin.getConfigManager().getMessage("kit-received",
@@ -136,65 +140,49 @@ public class KitManager {
      * Check if player is on cooldown for a kit
      */
     public boolean isOnCooldown(Player player, String kitName) {
-        Kit kit = kits.get(kitName.toLowerCase());
-        if (kit == null || kit.getCooldown() <= 0) {
-            return false;
-        }
-
-        Map<String, Long> playerCooldowns = kitCooldowns.get(player.getUniqueId());
-        if (playerCooldowns == null) {
-            return false;
-        }
+        return isOnCooldown(player, kits.get(kitName.toLowerCase()));
+    }
 
-        Long lastUse = playerCooldowns.get(kitName.toLowerCase());
-        if (lastUse == null) {
+    private boolean isOnCooldown(Player player, Kit kit) {
+        if (kit == null || kit.getCooldown() == 0) {
             return false;
         }
 
-        long cooldownMs = kit.getCooldown() * 1000L;
-        return System.currentTimeMillis() - lastUse < cooldownMs;
+        CooldownManager cooldowns = plugin.getCooldownManager();
+        return cooldowns.isOnCooldown(player.getUniqueId(), cooldowns.getKitScope(kit));
     }
 
     /**
      * Get remaining cooldown in seconds
      */
     public int getRemainingCooldown(Player player, String kitName) {
-        Kit kit = kits.get(kitName.toLowerCase());
-        if (kit == null || kit.getCooldown() <= 0) {
-            return 0;
-        }
-
-        Map<String, Long> playerCooldowns = kitCooldowns.get(player.getUniqueId());
-        if (playerCooldowns == null) {
-            return 0;
-        }
-
-        Long lastUse = playerCooldowns.get(kitName.toLowerCase());
-        if (lastUse == null) {
-            return 0;
-        }
-
-        long cooldownMs = kit.getCooldown() * 1000L;
-        long remainingMs = cooldownMs - (System.currentTimeMillis() - lastUse);
+        return getRemainingCooldown(player, kits.get(kitName.toLowerCase()));
+    }
 
-        if (remainingMs <= 0) {
-            playerCooldowns.remove(kitName.toLowerCase());
+    private int getRemainingCooldown(Player player, Kit kit) {
+        if (kit == null || kit.getCooldown() == 0) {
             return 0;
         }
 
-        return (int) Math.ceil(remainingMs / 1000.0);
+        CooldownManager cooldowns = plugin.getCooldownManager();
+        return cooldowns.getRemainingCooldown(player.getUniqueId(), cooldowns.getKitScope(kit));
     }
 
     /**
      * Set cooldown for a player and kit
      */
-    private void setCooldown(Player player, String kitName, int cooldownSeconds) {
-        if (cooldownSeconds <= 0) {
+    private void setCooldown(Player player, Kit kit) {
+        int cooldownSeconds = kit.getCooldown();
+        if (cooldownSeconds == 0) {
             return;
         }
 
-        kitCooldowns.computeIfAbsent(player.getUniqueId(), k -> new HashMap<>())
-            .put(kitName.toLowerCase(), System.currentTimeMillis());
+        CooldownManager cooldowns = plugin.getCooldownManager();
+        if (cooldownSeconds < 0) {
+            cooldowns.setPermanent(player.getUniqueId(), cooldowns.getKitScope(kit));  // One-time kit
+        } else {
+            cooldowns.setCooldown(player.getUniqueId(), cooldowns.getKitScope(kit), cooldownSeconds * 1000L);
+        }
     }
 
     /**
@@ -236,7 +224,10 @@ public class KitManager {
      * Clear player cooldowns (for cleanup)
      */
     public void clearPlayerCooldowns(UUID playerId) {
-        kitCooldowns.remove(playerId);
+        CooldownManager cooldowns = plugin.getCooldownManager();
+        for (Kit kit : kits.values()) {
+            cooldowns.clearCooldown(playerId, cooldowns.getKitScope(kit));
+        }
     }
 
     /**
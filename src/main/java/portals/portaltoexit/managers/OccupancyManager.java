@@ -0,0 +1,111 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PortalSpatialIndex;
+import portals.portaltoexit.utils.LongObjectMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Counts online players per chunk, kept up to date from join, move, teleport and quit events
+ * Lets least-loaded exit selection read the crowd around an exit with a few map lookups
+ * instead of scanning every player in the world
+ * Main thread only
+ */
+public class OccupancyManager {
+    private final Portaltoexit plugin;
+    private final Map<UUID, LongObjectMap<int[]>> counts = new HashMap<>();
+    private final Map<UUID, Position> positions = new HashMap<>();  // Chunk each player is counted in
+
+    public OccupancyManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Count every player already online, e.g. after a reload
+     */
+    public void trackOnlinePlayers() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            update(player.getUniqueId(), player.getLocation());
+        }
+    }
+
+    /**
+     * Move a player's count to the chunk of their new location
+     */
+    public void update(UUID playerId, Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        UUID worldId = world.getUID();
+        long chunkKey = PortalSpatialIndex.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        Position position = positions.get(playerId);
+        if (position != null) {
+            if (position.worldId.equals(worldId) && position.chunkKey == chunkKey) {
+                return;
+            }
+            decrement(position);
+        } else {
+            position = new Position();
+            positions.put(playerId, position);
+        }
+
+        position.worldId = worldId;
+        position.chunkKey = chunkKey;
+        counts.computeIfAbsent(worldId, id -> new LongObjectMap<>()).computeIfAbsent(chunkKey, k -> new int[1])[0]++;
+    }
+
+    public void remove(UUID playerId) {
+        Position position = positions.remove(playerId);
+        if (position != null) {
+            decrement(position);
+        }
+    }
+
+    /**
+     * @param chunkRadius Chunks around the location's chunk to include
+     * @return Players currently within the square of chunks around the location
+     */
+    public int getPlayersNear(Location location, int chunkRadius) {
+        LongObjectMap<int[]> worldCounts = location.getWorld() != null ? counts.get(location.getWorld().getUID()) : null;
+        if (worldCounts == null) {
+            return 0;
+        }
+
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        int total = 0;
+        for (int cx = centerX - chunkRadius; cx <= centerX + chunkRadius; cx++) {
+            for (int cz = centerZ - chunkRadius; cz <= centerZ + chunkRadius; cz++) {
+                int[] count = worldCounts.get(PortalSpatialIndex.chunkKey(cx, cz));
+                if (count != null) {
+                    total += count[0];
+                }
+            }
+        }
+        return total;
+    }
+
+    private void decrement(Position position) {
+        LongObjectMap<int[]> worldCounts = counts.get(position.worldId);
+        int[] count = worldCounts != null ? worldCounts.get(position.chunkKey) : null;
+        if (count != null && --count[0] <= 0) {
+            worldCounts.remove(position.chunkKey);
+            if (worldCounts.isEmpty()) {
+                counts.remove(position.worldId);
+            }
+        }
+    }
+
+    private static class Position {
+        private UUID worldId;
+        private long chunkKey;
+    }
+}
@@ -0,0 +1,405 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.storage.CooldownFile;
+import portals.portaltoexit.storage.JournalPortalStorage;
+import portals.portaltoexit.storage.PortalSerialization;
+import portals.portaltoexit.storage.PortalStorage;
+import portals.portaltoexit.storage.ShardedPortalStorage;
+import portals.portaltoexit.storage.SqlitePortalStorage;
+import portals.portaltoexit.storage.YamlPortalStorage;
+import portals.portaltoexit.utils.PortalConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind persistence for portal data and active cooldowns
+ * Edits only mark portals dirty; a periodic flush snapshots the changed portals
+ * on the main thread and hands them to the configured {@link PortalStorage}
+ * on a background thread. Cooldowns are written as a whole to one binary file
+ * whenever they changed since the last flush
+ */
+public class PersistenceManager {
+    private final Portaltoexit plugin;
+    private final ExecutorService writer;
+    private final String storageType;
+
+    // Main thread only
+    private final Set<String> dirtyPortals = new HashSet<>();
+    private boolean fullWriteRequested = false;
+
+    private BukkitTask flushTask;
+    private BukkitTask autoSaveTask;
+
+    // Writer thread only
+    private PortalStorage storage;
+
+    public PersistenceManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KaizenPortals-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.storageType = plugin.getConfigManager().getStorageType();
+    }
+
+    /**
+     * Start the periodic flush task (and the optional forced auto-save / journal compaction)
+     */
+    public void start() {
+        long window = Math.max(1, plugin.getConfigManager().getSaveWindowSeconds()) * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, window, window);
+
+        int interval = storageType.equals("journal")
+                ? plugin.getConfigManager().getJournalCompactInterval()
+                : plugin.getConfigManager().getAutoSaveInterval();
+        if (interval > 0) {
+            long ticks = interval * PortalConstants.AUTO_SAVE_TICKS_PER_MINUTE;
+            autoSaveTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::requestFullWrite, ticks, ticks);
+        }
+    }
+
+    /**
+     * Get the active storage type (yaml, journal or sqlite)
+     */
+    public String getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * (Re)open the storage backend on the writer thread and read the portals of the given worlds
+     * Pending writes are completed first
+     * @return Portals keyed by lower-case name
+     */
+    public Map<String, Portal> loadPortals(Collection<UUID> worldIds) {
+        flush();
+        List<UUID> toLoad = new ArrayList<>(worldIds);
+        Map<String, UUID> worlds = getLoadedWorlds();
+        try {
+            return restorePortals(writer.submit(() -> openStorage(toLoad, worlds)).get(30, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to load portals: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Read the saved cooldowns on the writer thread and hand them to the cooldown manager
+     * Expired cooldowns are skipped
+     */
+    public void loadCooldowns() {
+        File file = getCooldownFile();
+        try {
+            CooldownFile.Contents contents = writer.submit(() -> CooldownFile.read(file, System.currentTimeMillis()))
+                    .get(30, TimeUnit.SECONDS);
+            plugin.getCooldownManager().restore(contents);
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("Restored " + contents.getRecordCount() + " active cooldowns.");
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to load cooldowns: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the portals of a newly loaded world on the writer thread
+     * @param callback Receives the portals on the main thread
+     */
+    public void loadWorld(UUID worldId, Consumer<Map<String, Portal>> callback) {
+        Map<String, UUID> worlds = getLoadedWorlds();
+        writer.execute(() -> {
+            if (storage == null) {
+                return;
+            }
+
+            try {
+                storage.setLoadedWorlds(worlds);
+                Map<String, Map<String, Object>> data = storage.loadByWorld(worldId);
+                plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(restorePortals(data)));
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to load portals for world " + worldId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Save pending changes, then let the storage drop everything held for an unloading world
+     * Must be called while the world's portals are still registered
+     */
+    public void releaseWorld(UUID worldId) {
+        flush();
+        writer.execute(() -> {
+            if (storage == null) {
+                return;
+            }
+
+            try {
+                storage.releaseWorld(worldId);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to release portal storage for world " + worldId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Mark a portal as changed (or removed) so the next flush persists it
+     */
+    public void markDirty(String portalName) {
+        dirtyPortals.add(portalName.toLowerCase());
+    }
+
+    /**
+     * Force the next flush to rewrite the data file (or compact the journal) even if nothing changed
+     */
+    public void requestFullWrite() {
+        fullWriteRequested = true;
+    }
+
+    /**
+     * Snapshot pending changes on the calling (main) thread and hand them to the writer
+     */
+    public void flush() {
+        flushCooldowns();
+        if (dirtyPortals.isEmpty() && !fullWriteRequested) {
+            return;
+        }
+
+        Map<String, Map<String, Object>> upserts = new LinkedHashMap<>();
+        List<String> deletes = new ArrayList<>();
+        PortalManager portalManager = plugin.getPortalManager();
+        for (String name : dirtyPortals) {
+            Portal portal = portalManager.getPortal(name);
+            if (portal == null) {
+                deletes.add(name);
+            } else {
+                upserts.put(name, PortalSerialization.detach(portal));
+            }
+        }
+        dirtyPortals.clear();
+
+        boolean fullWrite = fullWriteRequested;
+        fullWriteRequested = false;
+        writer.execute(() -> saveChanges(upserts, deletes, fullWrite));
+    }
+
+    /**
+     * Flush pending changes and block until every queued write has completed
+     */
+    public void flushAndWait() {
+        flush();
+        try {
+            writer.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Timed out waiting for portal data to be written: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy every portal from one storage backend into another
+     * Runs on the writer thread after pending changes; the result is reported to the sender
+     */
+    public void migrate(String from, String to, CommandSender sender) {
+        flush();
+        Map<String, UUID> worlds = getLoadedWorlds();
+        writer.execute(() -> {
+            String result;
+            try {
+                List<String> skipped = new ArrayList<>();
+                int count = copyPortals(from, to, worlds, skipped);
+                result = "§aMigrated §e" + count + "§a portals from §e" + from + "§a to §e" + to + "§a.";
+                if (!skipped.isEmpty()) {
+                    plugin.getLogger().warning("Portals not migrated because their world is unknown: " + String.join(", ", skipped));
+                    result += "\n§c" + skipped.size() + " portals were not migrated because their world is unknown"
+                            + " (load it and migrate again): §e" + String.join("§c, §e", skipped);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().severe("Portal migration from " + from + " to " + to + " failed: " + e.getMessage());
+                result = "§cMigration failed: " + e.getMessage();
+            }
+
+            String message = result;
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        });
+    }
+
+    /**
+     * Stop scheduling flushes and write any pending changes synchronously
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        if (autoSaveTask != null) {
+            autoSaveTask.cancel();
+        }
+
+        flush();
+        writer.execute(this::closeStorage);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Portal data writer did not finish within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushCooldowns() {
+        CooldownManager cooldownManager = plugin.getCooldownManager();
+        if (cooldownManager == null || !cooldownManager.isDirty()) {
+            return;
+        }
+
+        CooldownFile.Contents contents = cooldownManager.snapshot();
+        File file = getCooldownFile();
+        writer.execute(() -> {
+            try {
+                CooldownFile.write(file, contents);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to save cooldowns: " + e.getMessage());
+            }
+        });
+    }
+
+    private File getCooldownFile() {
+        return new File(plugin.getDataFolder(), "cooldowns.dat");
+    }
+
+    // World UIDs by name; captured on the main thread for the writer
+    private Map<String, UUID> getLoadedWorlds() {
+        Map<String, UUID> worlds = new HashMap<>();
+        for (World world : plugin.getServer().getWorlds()) {
+            worlds.put(world.getName(), world.getUID());
+        }
+        return worlds;
+    }
+
+    // Main thread only: deserializing resolves the portals' worlds
+    private Map<String, Portal> restorePortals(Map<String, Map<String, Object>> data) {
+        Map<String, Portal> portals = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : data.entrySet()) {
+            try {
+                portals.put(entry.getKey(), PortalSerialization.restore(entry.getValue()));
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Skipping portal '" + entry.getKey() + "': " + e.getMessage());
+            }
+        }
+        return portals;
+    }
+
+    private Map<String, Map<String, Object>> openStorage(List<UUID> worldIds, Map<String, UUID> worlds) throws IOException {
+        closeStorage();
+        PortalStorage opened = createStorage(storageType);
+        opened.open();
+        opened.setLoadedWorlds(worlds);
+        storage = opened;
+
+        Map<String, Map<String, Object>> portals = new LinkedHashMap<>();
+        for (UUID worldId : worldIds) {
+            portals.putAll(storage.loadByWorld(worldId));
+        }
+        return portals;
+    }
+
+    private PortalStorage createStorage(String type) {
+        File dataFolder = plugin.getDataFolder();
+        File shardFolder = new File(dataFolder, "portals");
+        File legacyDataFile = new File(dataFolder, "portals.yml");
+        File legacyJournalFile = new File(dataFolder, "portals.journal");
+
+        switch (type) {
+            case "journal":
+                long threshold = Math.max(1, plugin.getConfigManager().getJournalCompactThresholdKb()) * 1024L;
+                return new ShardedPortalStorage(plugin.getLogger(), shardFolder, legacyDataFile, legacyJournalFile,
+                        (snapshot, journal) -> new JournalPortalStorage(plugin.getLogger(), snapshot, journal, threshold));
+            case "sqlite":
+                return new SqlitePortalStorage(plugin.getLogger(), new File(dataFolder, "portals.db"));
+            case "yaml":
+                return new ShardedPortalStorage(plugin.getLogger(), shardFolder, legacyDataFile, legacyJournalFile,
+                        (snapshot, journal) -> new YamlPortalStorage(plugin.getLogger(), snapshot, journal));
+            default:
+                throw new IllegalArgumentException("Unknown storage type: " + type);
+        }
+    }
+
+    private void saveChanges(Map<String, Map<String, Object>> upserts, List<String> deletes, boolean fullWrite) {
+        if (storage == null) {
+            plugin.getLogger().severe("Portal storage is not open; " + (upserts.size() + deletes.size()) + " changes were not saved");
+            return;
+        }
+
+        try {
+            storage.saveChanges(upserts, deletes);
+            if (fullWrite) {
+                storage.checkpoint();
+            }
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("Saved " + upserts.size() + " changed and " + deletes.size() + " removed portals.");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save portals: " + e.getMessage());
+        }
+    }
+
+    // Portals whose world cannot be determined are added to skipped instead
+    private int copyPortals(String from, String to, Map<String, UUID> worlds, List<String> skipped) throws IOException {
+        // The active backend is already open and up to date, so reuse it instead of opening its files twice
+        PortalStorage source = from.equals(storageType) && storage != null ? storage : createStorage(from);
+        PortalStorage target = to.equals(storageType) && storage != null ? storage : createStorage(to);
+        try {
+            if (source != storage) {
+                source.open();
+            }
+            if (target != storage) {
+                target.open();
+            }
+            source.setLoadedWorlds(worlds);
+            target.setLoadedWorlds(worlds);
+
+            Map<String, Map<String, Object>> data = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Object>> entry : source.loadAll().entrySet()) {
+                if (PortalSerialization.getWorldId(entry.getValue(), worlds) == null) {
+                    // Saved before world UIDs were recorded and its world is not loaded
+                    skipped.add(String.valueOf(entry.getValue().get("name")));
+                    continue;
+                }
+                data.put(entry.getKey(), entry.getValue());
+            }
+            target.batchUpsert(data);
+            target.checkpoint();
+            return data.size();
+        } finally {
+            if (source != storage) {
+                source.close();
+            }
+            if (target != storage) {
+                target.close();
+            }
+        }
+    }
+
+    private void closeStorage() {
+        if (storage == null) {
+            return;
+        }
+
+        try {
+            storage.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to close portal storage: " + e.getMessage());
+        }
+        storage = null;
+    }
+}
@@ -0,0 +1,264 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PlayerSession;
+import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.events.PortalApproachEvent;
+import portals.portaltoexit.events.PortalLeaveEvent;
+import portals.portaltoexit.utils.PortalConstants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Finds players stepping into portals
+ * In move mode the move listener calls {@link #check(Player)} itself. In sampled mode a task
+ * running every tick checks only players standing in chunks near a portal, each at the
+ * configured interval and staggered across ticks; membership changes on join, chunk change,
+ * teleport and respawn. Cost then follows the players near portals, not total movement
+ * Each player's session remembers the portal zone (detection radius) they are in. A check
+ * first asks whether they are still in that zone; only on entering or leaving one is the
+ * spatial index searched, {@link PortalApproachEvent} or {@link PortalLeaveEvent} fired and
+ * the ambient effects played
+ * Main thread only
+ */
+public class PortalDetectionManager {
+    private final Portaltoexit plugin;
+    private final Map<UUID, Candidate> candidates = new HashMap<>();  // Players in chunks near a portal
+    private final List<Player> due = new ArrayList<>();  // Reused by each sample tick
+    private BukkitTask sampleTask;
+    private int interval;
+    private long ticks;
+    private int nextPhase;
+    private int portalLayoutVersion;  // Layout the candidates were computed for
+
+    public PortalDetectionManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start the sampling task if sampled detection is configured
+     */
+    public void start() {
+        if (!plugin.getConfigManager().getSettings().isSampledDetection()) {
+            return;
+        }
+
+        interval = plugin.getConfigManager().getSettings().getDetectionSampleInterval();
+        sampleTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::sampleTick, 1L, 1L);
+        trackOnlinePlayers();
+    }
+
+    public void shutdown() {
+        if (sampleTask != null) {
+            sampleTask.cancel();
+            sampleTask = null;
+        }
+        candidates.clear();
+    }
+
+    /**
+     * Apply a changed detection mode or interval
+     */
+    public void reload() {
+        shutdown();
+        start();
+    }
+
+    /**
+     * @return True if the sampling task does the detection, so move events need not
+     */
+    public boolean isSampling() {
+        return sampleTask != null;
+    }
+
+    /**
+     * Track or drop a player after they reached a new chunk, world or the server
+     */
+    public void update(Player player, Location location) {
+        // Teleporting or respawning away leaves the zone at once
+        PlayerSession session = plugin.getSessionManager().find(player.getUniqueId());
+        if (session != null && session.getZonePortal() != null && !isInZone(session.getZonePortal(), location)) {
+            leaveZone(player, session);
+        }
+
+        if (sampleTask == null) {
+            return;
+        }
+
+        if (plugin.getPortalManager().isNearPortalChunk(location)) {
+            if (!candidates.containsKey(player.getUniqueId())) {
+                candidates.put(player.getUniqueId(), new Candidate(player, nextPhase++ % interval));
+            }
+        } else if (candidates.remove(player.getUniqueId()) != null) {
+            leave(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Stop tracking a player who quits, leaving the zone they were in
+     */
+    public void remove(Player player) {
+        candidates.remove(player.getUniqueId());
+        PlayerSession session = plugin.getSessionManager().find(player.getUniqueId());
+        if (session != null && session.getZonePortal() != null) {
+            leaveZone(player, session);
+        }
+    }
+
+    /**
+     * @return Number of players currently sampled
+     */
+    public int getCandidateCount() {
+        return candidates.size();
+    }
+
+    /**
+     * Check whether a player stands at a portal and start, prepare or cancel their teleport
+     */
+    public void check(Player player) {
+        PlayerSession session = plugin.getSessionManager().get(player);
+        Portal portal = session.getZonePortal();
+
+        // Check if player has permission
+        if (!player.hasPermission("portal2exit.use")) {
+            if (portal != null) {
+                leaveZone(player, session);
+            }
+            return;
+        }
+
+        // Most checks end here: the player is still in the zone they were in
+        Location playerLoc = player.getLocation();
+        if (portal == null || !isInZone(portal, playerLoc)) {
+            Portal nearbyPortal = plugin.getPortalManager().getPortalAtLocation(playerLoc);
+            if (nearbyPortal != portal) {
+                if (portal != null) {
+                    leaveZone(player, session);
+                }
+                if (nearbyPortal != null) {
+                    enterZone(player, session, nearbyPortal);
+                }
+            }
+            portal = nearbyPortal;
+        }
+
+        if (portal == null) {
+            return;
+        }
+
+        // Check if player is close enough to use the portal (within 1 block)
+        if (playerLoc.distanceSquared(portal.getLocation()) <= 1.0) {
+            // Queue the teleport; rushes are spread over ticks
+            plugin.getTeleportQueueManager().enqueue(player, portal);
+        } else {
+            // Approaching: resolve the exit now so the teleport itself is instant
+            // (a no-op while the reservation made on entering the zone is still valid)
+            plugin.getTeleportationManager().reserveExit(player, portal);
+        }
+    }
+
+    private void enterZone(Player player, PlayerSession session, Portal portal) {
+        session.setZonePortal(portal);
+        plugin.getServer().getPluginManager().callEvent(new PortalApproachEvent(player, portal));
+
+        // Play ambient portal effects
+        if (plugin.getConfigManager().areParticlesEnabled()) {
+            playAmbientEffects(portal.getLocation());
+        }
+    }
+
+    private void leaveZone(Player player, PlayerSession session) {
+        Portal portal = session.getZonePortal();
+        session.setZonePortal(null);
+
+        // Walked away: give up the queue slot and the reserved exit
+        leave(player.getUniqueId());
+        plugin.getServer().getPluginManager().callEvent(new PortalLeaveEvent(player, portal));
+    }
+
+    private void leave(UUID playerId) {
+        plugin.getTeleportQueueManager().remove(playerId);
+        plugin.getTeleportationManager().cancelReservation(playerId);
+    }
+
+    // Still within the detection radius of a portal that still exists
+    private boolean isInZone(Portal portal, Location location) {
+        Location portalLoc = portal.getLocation();
+        double radius = PortalConstants.PORTAL_DETECTION_RADIUS;
+        return location.getWorld() == portalLoc.getWorld()
+                && location.distanceSquared(portalLoc) <= radius * radius
+                && plugin.getPortalManager().getPortal(portal.getName()) == portal;
+    }
+
+    private void trackOnlinePlayers() {
+        portalLayoutVersion = plugin.getPortalManager().getPortalLayoutVersion();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            update(player, player.getLocation());
+        }
+    }
+
+    private void sampleTick() {
+        // Portals were created, removed or loaded: chunks near portals have changed
+        if (portalLayoutVersion != plugin.getPortalManager().getPortalLayoutVersion()) {
+            trackOnlinePlayers();
+        }
+
+        ticks++;
+        due.clear();
+        for (Candidate candidate : candidates.values()) {
+            // Like move mode, only check again once the player has reached another block
+            if ((ticks + candidate.phase) % interval == 0 && candidate.moved(candidate.player.getLocation())) {
+                due.add(candidate.player);
+            }
+        }
+
+        // Checked outside the loop: a teleport started here changes the candidates
+        for (int i = 0; i < due.size(); i++) {
+            check(due.get(i));
+        }
+        due.clear();
+    }
+
+    private void playAmbientEffects(Location location) {
+        // Spawn subtle ambient particles around active portals
+        location.getWorld().spawnParticle(Particle.PORTAL, location, 5, 0.3, 0.5, 0.3, 0.01);
+    }
+
+    /**
+     * A sampled player and the block they were last checked at
+     */
+    private static final class Candidate {
+        private final Player player;
+        private final int phase;  // Spreads the checks of different players over the interval
+        private World world;
+        private int blockX;
+        private int blockY;
+        private int blockZ;
+
+        Candidate(Player player, int phase) {
+            this.player = player;
+            this.phase = phase;
+        }
+
+        boolean moved(Location location) {
+            if (location.getWorld() == world && location.getBlockX() == blockX
+                    && location.getBlockY() == blockY && location.getBlockZ() == blockZ) {
+                return false;
+            }
+            world = location.getWorld();
+            blockX = location.getBlockX();
+            blockY = location.getBlockY();
+            blockZ = location.getBlockZ();
+            return true;
+        }
+    }
+}
@@ -1,75 +1,101 @@
 package portals.portaltoexit.managers;
 
 import org.bukkit.Location;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import portals.portaltoexit.Portaltoexit;
 import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.data.ExitPointIndex;
+import portals.portaltoexit.data.PortalSpatialIndex;
 import portals.portaltoexit.utils.PortalConstants;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class PortalManager {
+    private static final String GENERATED_NAME_MARKER = "_portal_";
+
     private final Portaltoexit plugin;
     private final Map<String, Portal> portals;
-    private final File dataFile;
-    private final Object saveLock = new Object();  // Synchronization for file operations
+    private final PortalSpatialIndex spatialIndex;
+    private final ExitPointIndex exitPointIndex = new ExitPointIndex();  // Every registered portal's exit points
+    private final Map<UUID, Set<Portal>> ownerIndex;  // Owner -> portals they own
+    private final Map<UUID, Integer> nextNameSuffix;  // Owner -> next free "_portal_<n>" suffix
 
     public PortalManager(Portaltoexit plugin) {
         this.plugin = plugin;
         this.portals = new HashMap<>();
-        this.dataFile = new File(plugin.getDataFolder(), "portals.yml");
+        this.spatialIndex = new PortalSpatialIndex();
+        this.ownerIndex = new HashMap<>();
+        this.nextNameSuffix = new HashMap<>();
     }
 
+    /**
+     * Load the portals of every currently loaded world
+     * Portals in other worlds are loaded when their world loads (see WorldListener)
+     */
     public void loadPortals() {
-        if (!dataFile.exists()) {
-            return;
+        List<UUID> worldIds = new ArrayList<>();
+        for (World world : plugin.getServer().getWorlds()) {
+            worldIds.add(world.getUID());
         }
 
-        YamlConfiguration config = YamlConfiguration.loadConfiguration(dataFile);
-        if (config.contains("portals")) {
-            for (String key : config.getConfigurationSection("portals").getKeys(false)) {
-                Portal portal = (Portal) config.get("portals." + key);
-                if (portal != null) {
-                    portals.put(portal.getName().toLowerCase(), portal);
-                }
-            }
+        for (Portal portal : plugin.getPersistenceManager().loadPortals(worldIds).values()) {
+            registerPortal(portal);
         }
 
         plugin.getLogger().info("Loaded " + portals.size() + " portals.");
     }
 
-    public void savePortals() {
-        synchronized (saveLock) {
-            YamlConfiguration config = new YamlConfiguration();
-
-            // Create thread-safe copy of portals to save
-            Map<String, Portal> portalsCopy;
-            synchronized (portals) {
-                portalsCopy = new HashMap<>(portals);
+    /**
+     * Load the stored portals of a world that was loaded after startup
+     */
+    public void loadWorld(World world) {
+        plugin.getPersistenceManager().loadWorld(world.getUID(), loaded -> {
+            int added = 0;
+            for (Map.Entry<String, Portal> entry : loaded.entrySet()) {
+                // A portal created while the world was loading is newer than the stored copy
+                if (!portals.containsKey(entry.getKey())) {
+                    registerPortal(entry.getValue());
+                    added++;
+                }
             }
-
-            for (Portal portal : portalsCopy.values()) {
-                config.set("portals." + portal.getName(), portal);
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("Loaded " + added + " portals for world " + world.getName() + ".");
             }
+        });
+    }
 
-            try {
-                // Ensure parent directory exists
-                if (!dataFile.getParentFile().exists()) {
-                    dataFile.getParentFile().mkdirs();
-                }
+    /**
+     * Save and release the portals of a world that is unloading
+     */
+    public void unloadWorld(World world) {
+        // Pending changes are snapshotted before the portals leave the index
+        plugin.getPersistenceManager().releaseWorld(world.getUID());
 
-                config.save(dataFile);
-                if (plugin.getConfigManager().isDebug()) {
-                    plugin.getLogger().info("Saved " + portalsCopy.size() + " portals.");
-                }
-            } catch (IOException e) {
-                plugin.getLogger().severe("Failed to save portals: " + e.getMessage());
+        List<Portal> inWorld = new ArrayList<>();
+        for (Portal portal : portals.values()) {
+            Location location = portal.getLocation();
+            if (location != null && location.isWorldLoaded() && world.equals(location.getWorld())) {
+                inWorld.add(portal);
             }
         }
+        for (Portal portal : inWorld) {
+            unregisterPortal(portal);
+        }
+    }
+
+    /**
+     * Write any pending portal changes and wait for the write to finish
+     */
+    public void savePortals() {
+        plugin.getPersistenceManager().flushAndWait();
+    }
+
+    /**
+     * Mark a portal as modified so the write-behind saver persists it
+     */
+    public void markDirty(Portal portal) {
+        plugin.getPersistenceManager().markDirty(portal.getName());
     }
 
     public boolean createPortal(Player player, String name, Location location) {
@@ -90,14 +116,10 @@ public class PortalManager {
 
         // Create the portal
         Portal portal = new Portal(name, location, player.getUniqueId());
-        portals.put(lowerName, portal);
+        registerPortal(portal);
 
         player.sendMessage(plugin.getConfigManager().getMessage("portal-created", "{name}", name));
-
-        // Auto-save if configured
-        if (plugin.getConfigManager().getAutoSaveInterval() > 0) {
-            savePortals();
-        }
+        markDirty(portal);
 
         return true;
     }
@@ -117,13 +139,9 @@ public class PortalManager {
             return false;
         }
 
-        portals.remove(lowerName);
+        unregisterPortal(portal);
         player.sendMessage(plugin.getConfigManager().getMessage("portal-removed", "{name}", name));
-
-        // Auto-save if configured
-        if (plugin.getConfigManager().getAutoSaveInterval() > 0) {
-            savePortals();
-        }
+        markDirty(portal);
 
         return true;
     }
@@ -132,26 +150,101 @@ public class PortalManager {
         return portals.get(name.toLowerCase());
     }
 
+    /**
+     * Get the nearest portal within detection radius of a location
+     */
     public Portal getPortalAtLocation(Location location) {
-        for (Portal portal : portals.values()) {
-            if (isNearPortal(location, portal.getLocation(), PortalConstants.PORTAL_DETECTION_RADIUS)) {
-                return portal;
-            }
+        return spatialIndex.findNearest(location, PortalConstants.PORTAL_DETECTION_RADIUS);
+    }
+
+    /**
+     * @return Whether a portal may be in detection range of a location's chunk
+     */
+    public boolean isNearPortalChunk(Location location) {
+        World world = location.getWorld();
+        int chunkRadius = (int) Math.ceil(PortalConstants.PORTAL_DETECTION_RADIUS / 16.0);
+        return world != null && spatialIndex.hasPortalNear(world, location.getBlockX() >> 4, location.getBlockZ() >> 4, chunkRadius);
+    }
+
+    /**
+     * @return A counter that changes whenever a portal is registered or removed
+     */
+    public int getPortalLayoutVersion() {
+        return spatialIndex.getVersion();
+    }
+
+    /**
+     * @return Index over the exit points of every registered portal
+     */
+    public ExitPointIndex getExitPointIndex() {
+        return exitPointIndex;
+    }
+
+    private void registerPortal(Portal portal) {
+        Portal previous = portals.put(portal.getName().toLowerCase(), portal);
+        if (previous != null) {
+            unindexPortal(previous);
         }
-        return null;
+        spatialIndex.add(portal);
+        portal.setExitPointIndex(exitPointIndex);
+        ownerIndex.computeIfAbsent(portal.getOwner(), id -> new LinkedHashSet<>()).add(portal);
+        trackNameSuffix(portal);
     }
 
-    private boolean isNearPortal(Location loc1, Location loc2, double radius) {
-        if (loc1.getWorld() != loc2.getWorld()) {
-            return false;
+    private void unregisterPortal(Portal portal) {
+        portals.remove(portal.getName().toLowerCase());
+        unindexPortal(portal);
+    }
+
+    private void unindexPortal(Portal portal) {
+        spatialIndex.remove(portal);
+        portal.setExitPointIndex(null);
+        Set<Portal> owned = ownerIndex.get(portal.getOwner());
+        if (owned != null && owned.remove(portal) && owned.isEmpty()) {
+            ownerIndex.remove(portal.getOwner());
+        }
+    }
+
+    // Keep the per-owner suffix counter ahead of any generated name already in use
+    private void trackNameSuffix(Portal portal) {
+        String name = portal.getName();
+        int marker = name.lastIndexOf(GENERATED_NAME_MARKER);
+        if (marker < 0) {
+            return;
+        }
+
+        try {
+            int suffix = Integer.parseInt(name.substring(marker + GENERATED_NAME_MARKER.length()));
+            nextNameSuffix.merge(portal.getOwner(), suffix + 1, Math::max);
+        } catch (NumberFormatException ignored) {
+            // Not a generated name
         }
-        return loc1.distance(loc2) <= radius;
+    }
+
+    /**
+     * Generate a unique "<player>_portal_<n>" name for a new portal
+     */
+    public String generatePortalName(Player player) {
+        UUID playerId = player.getUniqueId();
+        String baseName = player.getName() + GENERATED_NAME_MARKER;
+        int suffix = Math.max(getPlayerPortalCount(playerId) + 1, nextNameSuffix.getOrDefault(playerId, 1));
+
+        // Only collides when another owner took the name, so this rarely loops
+        while (portals.containsKey((baseName + suffix).toLowerCase())) {
+            suffix++;
+        }
+
+        return baseName + suffix;
     }
 
     public List<Portal> getPlayerPortals(UUID playerId) {
-        return portals.values().stream()
-                .filter(portal -> portal.getOwner().equals(playerId))
-                .collect(Collectors.toList());
+        Set<Portal> owned = ownerIndex.get(playerId);
+        return owned != null ? new ArrayList<>(owned) : new ArrayList<>();
+    }
+
+    public int getPlayerPortalCount(UUID playerId) {
+        Set<Portal> owned = ownerIndex.get(playerId);
+        return owned != null ? owned.size() : 0;
     }
 
     public boolean canCreatePortal(UUID playerId) {
@@ -160,11 +253,7 @@ public class PortalManager {
             return true; // Unlimited
         }
 
-        long playerPortalCount = portals.values().stream()
-                .filter(portal -> portal.getOwner().equals(playerId))
-                .count();
-
-        return playerPortalCount < maxPortals;
+        return getPlayerPortalCount(playerId) < maxPortals;
     }
 
     public Collection<Portal> getAllPortals() {
@@ -175,20 +264,17 @@ public class PortalManager {
         return portals.size();
     }
 
-    public void startAutoSave() {
-        int interval = plugin.getConfigManager().getAutoSaveInterval();
-        if (interval > 0) {
-            // Run save task asynchronously with proper synchronization
-            plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-                savePortals();  // Already synchronized internally
-            }, interval * 60 * 20L, interval * 60 * 20L); // Convert minutes to ticks
-        }
-    }
-
     public void removeAllPortals() {
-        // Clear all portals
+        // Mark every portal so the removals are persisted, then clear all portals
+        for (Portal portal : portals.values()) {
+            markDirty(portal);
+            portal.setExitPointIndex(null);
+        }
         portals.clear();
-        savePortals();
+        spatialIndex.clear();
+        exitPointIndex.clear();
+        ownerIndex.clear();
+        nextNameSuffix.clear();
 
         // The particle task will automatically stop showing particles for removed portals
         // since it checks if portals exist in the collection
@@ -0,0 +1,202 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import portals.portaltoexit.data.PortalSpatialIndex;
+import portals.portaltoexit.utils.LongObjectMap;
+import portals.portaltoexit.utils.PortalConstants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers where a requested exit location resolved to after the safety check
+ * Entries are stored as block offsets from the requested block, so every exit sharing a
+ * block keeps its own yaw and pitch; they are dropped as soon as a block changes in a
+ * chunk section they depend on, or their chunk unloads. A failed search depends on every
+ * section it scanned, since a change anywhere there could make a spot safe
+ * Main thread only
+ */
+public class SafeLocationCache {
+    private final Map<UUID, WorldCache> worlds = new HashMap<>();
+
+    /**
+     * Look up the resolved spot for a requested location
+     * @return The safe location (a new instance), the requested location itself if no safe spot
+     *         exists nearby, or null if nothing is cached
+     */
+    public Location get(Location requested) {
+        WorldCache cache = worlds.get(requested.getWorld().getUID());
+        if (cache == null) {
+            return null;
+        }
+
+        Entry entry = cache.entries.get(blockKey(requested.getBlockX(), requested.getBlockY(), requested.getBlockZ()));
+        if (entry == null) {
+            return null;
+        }
+        return requested.clone().add(entry.dx, entry.dy, entry.dz);
+    }
+
+    /**
+     * Cache the safe location found for a requested location
+     * @param resolved The safe location; must reflect the blocks as they are now
+     */
+    public void put(Location requested, Location resolved) {
+        if (resolved.getWorld() != requested.getWorld()) {
+            return;
+        }
+
+        int x = requested.getBlockX();
+        int y = requested.getBlockY();
+        int z = requested.getBlockZ();
+        int safeX = resolved.getBlockX();
+        int safeY = resolved.getBlockY();
+        int safeZ = resolved.getBlockZ();
+
+        // Depend on the feet, head and ground blocks of both the requested and the resolved spot
+        long requestedChunk = PortalSpatialIndex.chunkKey(x >> 4, z >> 4);
+        long resolvedChunk = PortalSpatialIndex.chunkKey(safeX >> 4, safeZ >> 4);
+        long[] chunks = requestedChunk == resolvedChunk ? new long[] {requestedChunk} : new long[] {requestedChunk, resolvedChunk};
+        add(requested, new Entry(blockKey(x, y, z), safeX - x, safeY - y, safeZ - z,
+                (Math.min(y, safeY) - 1) >> 4, (Math.max(y, safeY) + 1) >> 4, chunks));
+    }
+
+    /**
+     * Cache that no safe spot exists around a requested location (it is then used as-is)
+     * Must reflect the blocks as they are now
+     * @param radius Radius the search covered
+     * @param surface True if the search read heightmaps, so blocks up to the build limit mattered
+     */
+    public void putNotFound(Location requested, int radius, boolean surface) {
+        int x = requested.getBlockX();
+        int y = requested.getBlockY();
+        int z = requested.getBlockZ();
+        int r = Math.min(Math.max(radius, 0), PortalConstants.MAX_SAFE_LOCATION_SEARCH_RADIUS);
+
+        // Every chunk the search captured, and every section it probed (feet, head and ground)
+        int minChunkX = (x - r) >> 4;
+        int minChunkZ = (z - r) >> 4;
+        int chunkLength = ((x + r) >> 4) - minChunkX + 1;
+        int chunkWidth = ((z + r) >> 4) - minChunkZ + 1;
+        long[] chunks = new long[chunkLength * chunkWidth];
+        for (int cx = 0; cx < chunkLength; cx++) {
+            for (int cz = 0; cz < chunkWidth; cz++) {
+                chunks[cx * chunkWidth + cz] = PortalSpatialIndex.chunkKey(minChunkX + cx, minChunkZ + cz);
+            }
+        }
+        add(requested, new Entry(blockKey(x, y, z), 0, 0, 0,
+                (y - r - 1) >> 4, surface ? Integer.MAX_VALUE : (y + r + 1) >> 4, chunks));
+    }
+
+    private void add(Location requested, Entry entry) {
+        WorldCache cache = worlds.computeIfAbsent(requested.getWorld().getUID(), id -> new WorldCache());
+        Entry previous = cache.entries.get(entry.key);
+        if (previous != null) {
+            cache.remove(previous);
+        }
+        cache.add(entry);
+    }
+
+    /**
+     * Drop entries that depend on the chunk section containing the block
+     */
+    public void invalidateBlock(World world, int x, int y, int z) {
+        WorldCache cache = worlds.get(world.getUID());
+        if (cache == null) {
+            return;
+        }
+
+        List<Entry> bucket = cache.chunks.get(PortalSpatialIndex.chunkKey(x >> 4, z >> 4));
+        if (bucket == null) {
+            return;
+        }
+
+        int section = y >> 4;
+        for (int i = bucket.size() - 1; i >= 0 && i < bucket.size(); i--) {
+            Entry entry = bucket.get(i);
+            if (section >= entry.minSection && section <= entry.maxSection) {
+                cache.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Drop every entry that depends on the chunk
+     */
+    public void invalidateChunk(World world, int chunkX, int chunkZ) {
+        WorldCache cache = worlds.get(world.getUID());
+        if (cache == null) {
+            return;
+        }
+
+        List<Entry> bucket = cache.chunks.get(PortalSpatialIndex.chunkKey(chunkX, chunkZ));
+        if (bucket != null) {
+            for (Entry entry : new ArrayList<>(bucket)) {
+                cache.remove(entry);
+            }
+        }
+    }
+
+    public void invalidateWorld(World world) {
+        worlds.remove(world.getUID());
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    // 26 bits each for x and z, 12 bits for y
+    private static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static class WorldCache {
+        private final LongObjectMap<Entry> entries = new LongObjectMap<>();
+        private final LongObjectMap<List<Entry>> chunks = new LongObjectMap<>();
+
+        void add(Entry entry) {
+            entries.put(entry.key, entry);
+            for (long chunkKey : entry.chunks) {
+                chunks.computeIfAbsent(chunkKey, k -> new ArrayList<>(2)).add(entry);
+            }
+        }
+
+        void remove(Entry entry) {
+            entries.remove(entry.key);
+            for (long chunkKey : entry.chunks) {
+                unlink(chunkKey, entry);
+            }
+        }
+
+        private void unlink(long chunkKey, Entry entry) {
+            List<Entry> bucket = chunks.get(chunkKey);
+            if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+                chunks.remove(chunkKey);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final long key;
+        private final int dx;
+        private final int dy;
+        private final int dz;
+        private final int minSection;
+        private final int maxSection;
+        private final long[] chunks;  // Distinct chunks the entry depends on
+
+        Entry(long key, int dx, int dy, int dz, int minSection, int maxSection, long[] chunks) {
+            this.key = key;
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+            this.minSection = minSection;
+            this.maxSection = maxSection;
+            this.chunks = chunks;
+        }
+    }
+}
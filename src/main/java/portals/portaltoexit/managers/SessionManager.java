@@ -0,0 +1,64 @@
+package portals.portaltoexit.managers;
+
+import org.bukkit.entity.Player;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PlayerSession;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the sessions of online players
+ * Sessions are created on join and dropped on quit, so memory is bounded by the players online
+ * Safe to read from async events
+ */
+public class SessionManager {
+    private final Portaltoexit plugin;
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+    public SessionManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Open sessions for every player already online, e.g. after a reload
+     */
+    public void trackOnlinePlayers() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            open(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Start a fresh session for a joining player
+     */
+    public PlayerSession open(UUID playerId) {
+        PlayerSession session = new PlayerSession(playerId);
+        sessions.put(playerId, session);
+        return session;
+    }
+
+    /**
+     * Get the session of an online player, opening one if it is missing
+     * Main thread only; async callers use {@link #find(UUID)}
+     */
+    public PlayerSession get(Player player) {
+        return sessions.computeIfAbsent(player.getUniqueId(), PlayerSession::new);
+    }
+
+    /**
+     * @return The player's session, or null if they have none
+     */
+    public PlayerSession find(UUID playerId) {
+        return sessions.get(playerId);
+    }
+
+    public void close(UUID playerId) {
+        sessions.remove(playerId);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,140 @@
+package portals.portaltoexit.managers;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import portals.portaltoexit.Portaltoexit;
+import portals.portaltoexit.data.PluginSettings;
+import portals.portaltoexit.data.Portal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Admits portal teleports in arrival order within a per-tick time budget
+ * A rush through one portal is spread over several ticks instead of landing in one;
+ * each queued player's exit starts preparing as soon as they join the queue, and
+ * players bound for the same exit share the chunk loads and safety search
+ * Main thread only
+ */
+public class TeleportQueueManager {
+    private static final int POSITION_UPDATE_TICKS = 20;  // Often enough to keep the action bar from fading
+
+    private final Portaltoexit plugin;
+    private final Deque<QueuedTeleport> queue = new ArrayDeque<>();
+    private final Map<UUID, QueuedTeleport> queued = new HashMap<>();
+    private BukkitTask processTask;
+    private long ticks;
+
+    public TeleportQueueManager(Portaltoexit plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        processTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::processTick, 1L, 1L);
+    }
+
+    public void shutdown() {
+        if (processTask != null) {
+            processTask.cancel();
+            processTask = null;
+        }
+        queue.clear();
+        queued.clear();
+    }
+
+    /**
+     * Queue a portal teleport, or run it right away if queueing is disabled
+     * @return False if the player is already queued or teleporting
+     */
+    public boolean enqueue(Player player, Portal portal) {
+        UUID playerId = player.getUniqueId();
+        if (queued.containsKey(playerId) || plugin.getTeleportationManager().isTeleportPending(playerId)) {
+            return false;
+        }
+
+        if (processTask == null || !plugin.getConfigManager().getSettings().isTeleportQueueEnabled()) {
+            plugin.getTeleportationManager().teleportPlayer(player, portal);
+            return true;
+        }
+
+        QueuedTeleport entry = new QueuedTeleport(playerId, portal);
+        queue.addLast(entry);
+        queued.put(playerId, entry);
+
+        // Load the destination and check its safety while the player waits
+        plugin.getTeleportationManager().reserveExit(player, portal);
+        return true;
+    }
+
+    /**
+     * Take a player out of the queue, e.g. when they walk away or quit
+     */
+    public void remove(UUID playerId) {
+        QueuedTeleport entry = queued.remove(playerId);
+        if (entry != null) {
+            queue.remove(entry);
+        }
+    }
+
+    public boolean isQueued(UUID playerId) {
+        return queued.containsKey(playerId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void processTick() {
+        PluginSettings settings = plugin.getConfigManager().getSettings();
+        long budget = settings.getTeleportQueueTickBudgetNanos();
+        long start = System.nanoTime();
+
+        // Always admit at least one teleport per tick so the queue keeps moving
+        boolean admitted = false;
+        while (!queue.isEmpty() && (!admitted || System.nanoTime() - start < budget)) {
+            QueuedTeleport entry = queue.pollFirst();
+            queued.remove(entry.playerId);
+
+            Player player = plugin.getServer().getPlayer(entry.playerId);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+
+            plugin.getTeleportationManager().teleportPlayer(player, entry.portal);
+            admitted = true;
+        }
+
+        if (++ticks % POSITION_UPDATE_TICKS == 0 && !queue.isEmpty()) {
+            sendPositions();
+        }
+    }
+
+    private void sendPositions() {
+        int position = 0;
+        for (QueuedTeleport entry : queue) {
+            position++;
+            Player player = plugin.getServer().getPlayer(entry.playerId);
+            if (player == null) {
+                continue;
+            }
+
+            String message = plugin.getConfigManager().getMessage("teleport-queued", "{position}", String.valueOf(position));
+            player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(message));
+        }
+    }
+
+    private static class QueuedTeleport {
+        private final UUID playerId;
+        private final Portal portal;
+
+        QueuedTeleport(UUID playerId, Portal portal) {
+            this.playerId = playerId;
+            this.portal = portal;
+        }
+    }
+}
@@ -1,23 +1,48 @@
 package portals.portaltoexit.managers;
 
+import org.bukkit.HeightMap;
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
 import portals.portaltoexit.Portaltoexit;
 import portals.portaltoexit.data.Portal;
+import portals.portaltoexit.utils.MaterialSafety;
+import portals.portaltoexit.utils.PortalConstants;
+import portals.portaltoexit.utils.SafeLocationSearch;
+import portals.portaltoexit.utils.VersionCompatibility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 public class TeleportationManager {
     private final Portaltoexit plugin;
+    private final Map<UUID, PendingTeleport> pendingTeleports = new HashMap<>();  // Players waiting on their exit
+    private final SafeLocationCache safeLocationCache = new SafeLocationCache();
+    private final Map<UUID, ExitReservation> reservations = new HashMap<>();  // Exits resolved ahead of use
+    private final Map<Location, CompletableFuture<Location>> runningSearches = new HashMap<>();
 
     public TeleportationManager(Portaltoexit plugin) {
         this.plugin = plugin;
     }
 
     public void teleportPlayer(Player player, Portal portal) {
+        // Ignore re-triggers while a teleport for this player is still in progress
+        if (pendingTeleports.containsKey(player.getUniqueId())) {
+            return;
+        }
+
         // Check activation requirements first
         if (plugin.getActivationManager() != null) {
             ActivationManager.ActivationResult result = plugin.getActivationManager().checkActivationRequirements(player, portal);
@@ -28,45 +53,251 @@ public class TeleportationManager {
         }
 
         // Check cooldown
-        if (plugin.getCooldownManager().isOnCooldown(player.getUniqueId())) {
-            int remaining = plugin.getCooldownManager().getRemainingCooldown(player.getUniqueId());
+        int cooldownScope = plugin.getCooldownManager().getPortalScope(portal);
+        if (plugin.getCooldownManager().isOnCooldown(player.getUniqueId(), cooldownScope)) {
+            int remaining = plugin.getCooldownManager().getRemainingCooldown(player.getUniqueId(), cooldownScope);
             player.sendMessage(plugin.getConfigManager().getMessage("cooldown-active", "{seconds}", String.valueOf(remaining)));
             return;
         }
 
         // Check economy cost
         double cost = portal.getCost() > 0 ? portal.getCost() : plugin.getConfigManager().getDefaultPortalCost();
-        if (cost > 0 && plugin.getEconomyManager() != null && plugin.getEconomyManager().isEnabled()) {
-            // Check if player has bypass permission
-            if (!player.hasPermission("portal2exit.bypass.cost")) {
-                if (!plugin.getEconomyManager().hasBalance(player, cost)) {
-                    player.sendMessage(plugin.getConfigManager().getMessage("insufficient-funds",
-                        "{amount}", plugin.getEconomyManager().format(cost)));
-                    return;
-                }
+        boolean paid = cost > 0 && plugin.getEconomyManager() != null && plugin.getEconomyManager().isEnabled()
+                && !player.hasPermission("portal2exit.bypass.cost");
+        if (paid && !plugin.getEconomyManager().hasBalance(player, cost)) {
+            player.sendMessage(plugin.getConfigManager().getMessage("insufficient-funds",
+                "{amount}", plugin.getEconomyManager().format(cost)));
+            return;
+        }
+        double fare = paid ? cost : 0;
+
+        // Use the exit resolved while the player approached, or resolve it now
+        ExitReservation reservation = takeReservation(player.getUniqueId(), portal);
+        if (reservation == null) {
+            reservation = resolveExit(portal, getExitLocation(player, portal, false));
+            if (reservation == null) {
+                player.sendMessage("§cUnable to find a valid exit location!");
+                return;
+            }
+        }
 
-                // Process payment
-                double ownerPercentage = plugin.getConfigManager().getOwnerRevenuePercentage();
-                if (!plugin.getEconomyManager().processPortalPayment(player, portal.getOwner(), cost, ownerPercentage)) {
-                    player.sendMessage(plugin.getConfigManager().getMessage("economy-error"));
-                    return;
+        // Charge the fare and take the items now; both are handed back if the teleport does not happen
+        ExitReservation exit = reservation;
+        if (fare > 0 && !plugin.getEconomyManager().withdrawPlayer(player, fare)) {
+            player.sendMessage(plugin.getConfigManager().getMessage("economy-error"));
+            plugin.getChunkPreloadManager().release(exit.area);
+            return;
+        }
+        List<ItemStack> items = new ArrayList<>();
+        if (plugin.getActivationManager() != null) {
+            items = plugin.getActivationManager().takeRequiredItems(player, portal);
+            if (items == null) {
+                if (fare > 0) {
+                    plugin.getEconomyManager().depositPlayer(player, fare);
+                }
+                String message = plugin.getActivationManager().checkActivationRequirements(player, portal).getFailureMessage();
+                if (message != null) {
+                    player.sendMessage(message);
                 }
+                plugin.getChunkPreloadManager().release(exit.area);
+                return;
             }
         }
 
-        // Determine exit location
-        Location exitLocation = getExitLocation(player, portal);
+        PendingTeleport pending = new PendingTeleport(fare, items);
+        pendingTeleports.put(player.getUniqueId(), pending);
+
+        // Arrival spots take their turn only now that the player is jumping
+        CompletableFuture<Location> arrival = exit.spread != Portal.ArrivalSpread.OFF
+                ? exit.resolved.thenCompose(safeLocation -> plugin.getArrivalSpreadManager().pick(safeLocation, exit.spread))
+                : exit.resolved;
+
+        // An exit whose chunks never load (e.g. its world unloaded) must not block the player for good
+        CompletableFuture<Location> resolved = new CompletableFuture<>();
+        arrival.whenComplete((safeLocation, error) -> {
+            if (error != null) {
+                resolved.completeExceptionally(error);
+            } else {
+                resolved.complete(safeLocation);
+            }
+        });
+        BukkitTask timeout = plugin.getServer().getScheduler().runTaskLater(plugin,
+                () -> resolved.completeExceptionally(new TimeoutException("Exit was not ready in time")),
+                PortalConstants.EXIT_RESOLVE_TIMEOUT_TICKS);
+
+        resolved
+                .handle((safeLocation, error) -> {
+                    if (error == null) {
+                        return safeLocation != null ? safeLocation : exit.requested;
+                    }
+                    if (isAbort(error)) {
+                        return null;
+                    }
+                    plugin.getLogger().warning("Safe location search failed: " + error.getMessage());
+                    return exit.requested;
+                })
+                .thenCompose(destination -> {
+                    if (destination == null && player.isOnline()) {
+                        player.sendMessage("§cUnable to find a valid exit location!");
+                    }
+                    return destination != null && player.isOnline()
+                            ? completeTeleport(player, portal, destination, pending)
+                            : CompletableFuture.completedFuture(false);
+                })
+                .whenComplete((teleported, error) -> {
+                    timeout.cancel();
+                    pendingTeleports.remove(player.getUniqueId(), pending);
+                    if (error != null) {
+                        plugin.getLogger().warning("Teleport failed for " + player.getName() + ": " + error.getMessage());
+                    }
+                    if (!Boolean.TRUE.equals(teleported)) {
+                        refund(player, pending);
+                    }
+                    // The arriving player keeps the destination loaded from here on
+                    plugin.getChunkPreloadManager().release(exit.area);
+                });
+    }
 
-        if (exitLocation == null) {
-            player.sendMessage("§cUnable to find a valid exit location!");
+    /**
+     * Check whether a teleport for the player is still being prepared or carried out
+     */
+    public boolean isTeleportPending(UUID playerId) {
+        return pendingTeleports.containsKey(playerId);
+    }
+
+    /**
+     * Forget a quitting player's reserved exit and pending teleport
+     * A teleport still being prepared finds the player offline and stops
+     */
+    public void forgetPlayer(Player player) {
+        cancelReservation(player.getUniqueId());
+
+        // Still in the quit event, so returned items are saved with the player
+        PendingTeleport pending = pendingTeleports.remove(player.getUniqueId());
+        if (pending != null) {
+            refund(player, pending);
+        }
+    }
+
+    // Hand back the fare and items of a teleport that did not happen; only the first call does anything
+    private void refund(Player player, PendingTeleport pending) {
+        if (pending.settled) {
             return;
         }
+        pending.settled = true;
+
+        if (pending.fare > 0) {
+            plugin.getEconomyManager().depositPlayer(player, pending.fare);
+        }
+        if (plugin.getActivationManager() != null) {
+            plugin.getActivationManager().returnItems(player, pending.items);
+        }
+    }
+
+    /**
+     * Resolve the player's exit for a portal they are approaching: pick the exit point,
+     * load its chunks and run the safety check, so using the portal needs no synchronous work
+     * Shared rotations (sequential exits, round-robin arrival spots) are only peeked at; the
+     * turn is taken when the reservation is used. Calling again for the same portal is a
+     * no-op until the reservation expires, which releases its chunks
+     */
+    public void reserveExit(Player player, Portal portal) {
+        UUID playerId = player.getUniqueId();
+        ExitReservation existing = reservations.get(playerId);
+        if (existing != null && existing.portal == portal && existing.expiresAt > System.currentTimeMillis()) {
+            return;
+        }
+        cancelReservation(playerId);
+
+        // Nothing to prepare while a teleport is running or the portal cannot be used yet
+        if (pendingTeleports.containsKey(playerId)
+                || plugin.getCooldownManager().isOnCooldown(playerId, plugin.getCooldownManager().getPortalScope(portal))) {
+            return;
+        }
+
+        ExitReservation reservation = resolveExit(portal, getExitLocation(player, portal, true));
+        if (reservation != null) {
+            reservations.put(playerId, reservation);
+            reservation.expiry = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+                if (reservations.remove(playerId, reservation)) {
+                    plugin.getChunkPreloadManager().release(reservation.area);
+                }
+            }, PortalConstants.EXIT_RESERVATION_MILLIS / 50L);
+        }
+    }
 
-        // Ensure safety if configured
-        if (plugin.getConfigManager().isSafetyCheckEnabled()) {
-            exitLocation = ensureSafeLocation(exitLocation);
+    /**
+     * Drop the player's reserved exit, e.g. when they walk away from the portal
+     */
+    public void cancelReservation(UUID playerId) {
+        ExitReservation reservation = reservations.remove(playerId);
+        if (reservation != null) {
+            reservation.expiry.cancel();
+            plugin.getChunkPreloadManager().release(reservation.area);
         }
+    }
 
+    private ExitReservation takeReservation(UUID playerId, Portal portal) {
+        ExitReservation reservation = reservations.get(playerId);
+        if (reservation == null) {
+            return null;
+        }
+
+        if (reservation.portal != portal || reservation.expiresAt <= System.currentTimeMillis()) {
+            cancelReservation(playerId);
+            return null;
+        }
+
+        if (isSequential(portal)) {
+            // Someone else took the peeked turn first; the caller resolves the current one
+            if (!reservation.requested.equals(portal.peekSequentialExitPoint())) {
+                cancelReservation(playerId);
+                return null;
+            }
+            portal.getSequentialExitPoint();
+        }
+        reservations.remove(playerId);
+        reservation.expiry.cancel();
+        return reservation;
+    }
+
+    private static boolean isSequential(Portal portal) {
+        return portal.getExitType() == Portal.ExitType.CUSTOM
+                && portal.getSelectionMode() == Portal.ExitSelectionMode.SEQUENTIAL
+                && !portal.getExitPoints().isEmpty();
+    }
+
+    // Load the exit's chunks and start making it safe once they are loaded, without blocking
+    private ExitReservation resolveExit(Portal portal, Location exitLocation) {
+        if (exitLocation == null || exitLocation.getWorld() == null) {
+            return null;
+        }
+
+        boolean safetyCheck = plugin.getConfigManager().isSafetyCheckEnabled();
+        int radius = safetyCheck && plugin.getConfigManager().shouldFindSafeLocation()
+                ? plugin.getConfigManager().getSafeLocationSearchRadius() : 0;
+        // Arrival spots are checked for safety too, so spreading needs the safety check
+        Portal.ArrivalSpread spread = safetyCheck ? portal.getArrivalSpread() : Portal.ArrivalSpread.OFF;
+        if (spread != Portal.ArrivalSpread.OFF) {
+            radius += plugin.getConfigManager().getSettings().getArrivalSpreadRadius();
+        }
+        ChunkPreloadManager.Area area = plugin.getChunkPreloadManager().hold(exitLocation, radius);
+
+        // Ensure safety if configured; a nearby search runs off-thread on chunk snapshots
+        CompletableFuture<Location> resolved = area.getReady().thenCompose(loaded -> safetyCheck
+                ? ensureSafeLocation(exitLocation, portal.getSurfaceHeightMap())
+                : CompletableFuture.completedFuture(exitLocation));
+        if (spread != Portal.ArrivalSpread.OFF) {
+            // Only search the arrival spots here; one is picked when the player jumps
+            resolved = resolved.thenCompose(safeLocation -> plugin.getArrivalSpreadManager().prepare(safeLocation, spread)
+                    .thenApply(ready -> safeLocation));
+        }
+        return new ExitReservation(portal, exitLocation, area, resolved, spread,
+                System.currentTimeMillis() + PortalConstants.EXIT_RESERVATION_MILLIS);
+    }
+
+    // Jump without blocking where the server supports it; the owner's share, kit and cooldown only apply on success
+    private CompletableFuture<Boolean> completeTeleport(Player player, Portal portal, Location exitLocation, PendingTeleport pending) {
         // Play effects at departure
         if (plugin.getConfigManager().areParticlesEnabled()) {
             player.getWorld().spawnParticle(Particle.PORTAL, player.getLocation(), 50, 0.5, 1, 0.5, 0.1);
@@ -77,33 +308,52 @@ public class TeleportationManager {
         }
 
         // Teleport the player
-        player.teleport(exitLocation);
+        return VersionCompatibility.teleportAsync(player, exitLocation).thenApply(teleported -> {
+            // The player may have quit mid-jump and been refunded already
+            if (!Boolean.TRUE.equals(teleported) || !player.isOnline() || pending.settled) {
+                if (player.isOnline()) {
+                    player.sendMessage("§cTeleport was cancelled!");
+                }
+                return false;
+            }
+            pending.settled = true;
 
-        // Process activation after successful teleportation (consume items, give kits)
-        if (plugin.getActivationManager() != null) {
-            plugin.getActivationManager().processActivation(player, portal);
-        }
+            // The fare was taken before the jump; pass on the owner's share
+            if (pending.fare > 0) {
+                double ownerPercentage = plugin.getConfigManager().getOwnerRevenuePercentage();
+                plugin.getEconomyManager().payOwnerShare(player, portal.getOwner(), pending.fare, ownerPercentage);
+            }
 
-        // Play effects at arrival
-        if (plugin.getConfigManager().areParticlesEnabled()) {
-            player.getWorld().spawnParticle(Particle.PORTAL, exitLocation, 50, 0.5, 1, 0.5, 0.1);
-        }
+            // Give kits after successful teleportation; required items were taken before the jump
+            if (plugin.getActivationManager() != null) {
+                plugin.getActivationManager().giveKit(player, portal);
+            }
 
-        if (plugin.getConfigManager().areSoundsEnabled()) {
-            player.getWorld().playSound(exitLocation, Sound.BLOCK_PORTAL_TRAVEL, 0.5f, 1.5f);
-        }
+            plugin.getHotExitManager().recordArrival(exitLocation);
 
-        // Set cooldown
-        plugin.getCooldownManager().setCooldown(player.getUniqueId());
+            // Play effects at arrival
+            if (plugin.getConfigManager().areParticlesEnabled()) {
+                player.getWorld().spawnParticle(Particle.PORTAL, exitLocation, 50, 0.5, 1, 0.5, 0.1);
+            }
 
-        // Send message
-        player.sendMessage(plugin.getConfigManager().getMessage("portal-used", "{name}", portal.getName()));
+            if (plugin.getConfigManager().areSoundsEnabled()) {
+                player.getWorld().playSound(exitLocation, Sound.BLOCK_PORTAL_TRAVEL, 0.5f, 1.5f);
+            }
+
+            // Set cooldown
+            plugin.getCooldownManager().setPortalCooldown(player.getUniqueId(), portal);
+
+            // Send message
+            player.sendMessage(plugin.getConfigManager().getMessage("portal-used", "{name}", portal.getName()));
+            return true;
+        });
     }
 
     /**
-     * Gets exit location based on the portal's selection mode (FIRST, RANDOM, SEQUENTIAL, NEAREST)
+     * Gets exit location based on the portal's selection mode (FIRST, RANDOM, SEQUENTIAL, NEAREST, WEIGHTED, LEAST_LOADED)
+     * @param peek Only look at the next sequential exit instead of taking the turn
      */
-    private Location getExitBySelectionMode(Player player, Portal portal) {
+    private Location getExitBySelectionMode(Player player, Portal portal, boolean peek) {
         if (portal.getExitPoints().isEmpty()) {
             return portal.getCustomExit();
         }
@@ -116,18 +366,25 @@ public class TeleportationManager {
                 return portal.getRandomExitPoint();
 
             case SEQUENTIAL:
-                return portal.getSequentialExitPoint();
+                return peek ? portal.peekSequentialExitPoint() : portal.getSequentialExitPoint();
 
             case NEAREST:
                 Location nearest = portal.getNearestExitPoint(player.getLocation());
                 return nearest != null ? nearest : portal.getExitPoints().get(0);
 
+            case WEIGHTED:
+                return portal.getWeightedExitPoint();
+
+            case LEAST_LOADED:
+                int chunkRadius = plugin.getConfigManager().getSettings().getLeastLoadedChunkRadius();
+                return portal.getLeastLoadedExitPoint(exit -> plugin.getOccupancyManager().getPlayersNear(exit, chunkRadius));
+
             default:
                 return portal.getExitPoints().get(0);
         }
     }
 
-    private Location getExitLocation(Player player, Portal portal) {
+    private Location getExitLocation(Player player, Portal portal, boolean peek) {
         // Add null safety for world
         if (player.getWorld() == null) {
             plugin.getLogger().warning("Player world is null for " + player.getName());
@@ -151,7 +408,7 @@ public class TeleportationManager {
 
             case CUSTOM:
                 // Use the specific selection mode for CUSTOM type
-                Location customExit = getExitBySelectionMode(player, portal);
+                Location customExit = getExitBySelectionMode(player, portal, peek);
                 if (customExit != null) {
                     return customExit.clone();
                 } else {
@@ -186,96 +443,111 @@ public class TeleportationManager {
         }
     }
 
-    public Location ensureSafeLocation(Location location) {
+    /**
+     * Make a location safe, searching nearby on chunk snapshots if needed
+     * Outcomes are cached until a block changes around the requested or resolved spot
+     * @param heightMap Heightmap for a surface-first search, or null for the cube search
+     * @return Future completed on the main thread with the safe location, or the original if none was found
+     */
+    public CompletableFuture<Location> ensureSafeLocation(Location location, HeightMap heightMap) {
+        Location cached = safeLocationCache.get(location);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
         // First, check if the current location is safe
         if (isSafeLocation(location)) {
-            return location;
+            safeLocationCache.put(location, location);
+            return CompletableFuture.completedFuture(location);
         }
 
-        // If finding safe location is disabled, return the original
         if (!plugin.getConfigManager().shouldFindSafeLocation()) {
-            return location;
+            return CompletableFuture.completedFuture(location);
+        }
+
+        // Players bound for the same exit share one search
+        CompletableFuture<Location> running = runningSearches.get(location);
+        if (running != null) {
+            return running.thenApply(Location::clone);
         }
 
         // Search for a safe location nearby
         int searchRadius = plugin.getConfigManager().getSafeLocationSearchRadius();
-        Location safeLocation = findSafeLocation(location, searchRadius);
-
-        return safeLocation != null ? safeLocation : location;
-    }
-
-    private Location findSafeLocation(Location center, int radius) {
-        // Search in a spiral pattern for a safe location
-        for (int y = 0; y <= radius; y++) {
-            for (int x = -radius; x <= radius; x++) {
-                for (int z = -radius; z <= radius; z++) {
-                    Location testLoc = center.clone().add(x, y, z);
-                    if (isSafeLocation(testLoc)) {
-                        return testLoc;
+        MaterialSafety materialSafety = plugin.getConfigManager().getMaterialSafety();
+        CompletableFuture<Location> search = SafeLocationSearch.find(plugin, location, searchRadius, materialSafety, heightMap)
+                .whenComplete((safeLocation, error) -> runningSearches.remove(location))
+                .thenApply(safeLocation -> {
+                    if (safeLocation == null) {
+                        safeLocationCache.putNotFound(location, searchRadius, heightMap != null);
+                        return location;
                     }
-                }
-            }
-        }
-
-        // Search downward if no safe location found above
-        for (int y = -1; y >= -radius; y--) {
-            for (int x = -radius; x <= radius; x++) {
-                for (int z = -radius; z <= radius; z++) {
-                    Location testLoc = center.clone().add(x, y, z);
-                    if (isSafeLocation(testLoc)) {
-                        return testLoc;
+                    // Blocks may have changed while the snapshots were scanned; only cache what still holds
+                    if (isSafeLocation(safeLocation)) {
+                        safeLocationCache.put(location, safeLocation);
                     }
-                }
-            }
-        }
-
-        return null;
+                    return safeLocation;
+                });
+        runningSearches.put(location, search);
+        return search.thenApply(Location::clone);
     }
 
-    private boolean isSafeLocation(Location location) {
-        Block feet = location.getBlock();
-        Block head = feet.getRelative(BlockFace.UP);
-        Block ground = feet.getRelative(BlockFace.DOWN);
-
-        // Check that feet and head are air (or passable)
-        if (!isPassable(feet) || !isPassable(head)) {
-            return false;
-        }
-
-        // Check that ground is solid
-        if (!ground.getType().isSolid()) {
-            return false;
+    // Exit chunks that stopped loading or took too long: the teleport is given up, not sent to an unloaded world
+    private static boolean isAbort(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause instanceof CancellationException || cause instanceof TimeoutException;
+    }
 
-        // Check for dangerous blocks
-        if (isDangerous(ground.getType())) {
-            return false;
-        }
+    public SafeLocationCache getSafeLocationCache() {
+        return safeLocationCache;
+    }
 
-        return true;
+    /**
+     * Check the live blocks at a location for a safe stand
+     */
+    public boolean isSafeLocation(Location location) {
+        Block feet = location.getBlock();
+        return plugin.getConfigManager().getMaterialSafety().isSafe(feet.getType(),
+                feet.getRelative(BlockFace.UP).getType(),
+                feet.getRelative(BlockFace.DOWN).getType());
     }
 
-    private boolean isPassable(Block block) {
-        Material type = block.getType();
-        // Check for air differently for 1.12.2 compatibility
-        if (type == Material.AIR) return true;
-        if (type.isSolid()) return false;
-
-        // Use material names that exist in all versions
-        String typeName = type.name();
-        return typeName.equals("WATER") ||
-               typeName.contains("GRASS") ||
-               typeName.equals("VINE") ||
-               typeName.contains("TALL_GRASS") ||
-               !type.isSolid();
+    /**
+     * A teleport being prepared, with the fare and items held until it happens or is refunded
+     */
+    private static class PendingTeleport {
+        private final double fare;
+        private final List<ItemStack> items;
+        private boolean settled;  // Completed or refunded
+
+        PendingTeleport(double fare, List<ItemStack> items) {
+            this.fare = fare;
+            this.items = items;
+        }
     }
 
-    private boolean isDangerous(Material material) {
-        String name = material.name();
-        return material == Material.LAVA || material == Material.FIRE ||
-               material == Material.CACTUS ||
-               name.contains("MAGMA") ||  // MAGMA_BLOCK in newer versions
-               name.contains("WITHER") ||  // WITHER_ROSE in newer versions
-               name.contains("BERRY");  // SWEET_BERRY_BUSH in newer versions
+    /**
+     * An exit picked for a player ahead of (or at) use
+     */
+    private static class ExitReservation {
+        private final Portal portal;
+        private final Location requested;
+        private final ChunkPreloadManager.Area area;
+        private final CompletableFuture<Location> resolved;  // Safe exit, before any arrival spread
+        private final Portal.ArrivalSpread spread;
+        private final long expiresAt;
+        private BukkitTask expiry;  // Releases the chunks of a reservation that was never used
+
+        ExitReservation(Portal portal, Location requested, ChunkPreloadManager.Area area,
+                        CompletableFuture<Location> resolved, Portal.ArrivalSpread spread, long expiresAt) {
+            this.portal = portal;
+            this.requested = requested;
+            this.area = area;
+            this.resolved = resolved;
+            this.spread = spread;
+            this.expiresAt = expiresAt;
+        }
     }
-}
\ No newline at end of file
+}
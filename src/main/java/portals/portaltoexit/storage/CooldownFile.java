@@ -0,0 +1,154 @@
+package portals.portaltoexit.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the binary cooldown store
+ * Layout: magic, version, the scope names the records refer to, then one fixed-size
+ * (uuid most bits, uuid least bits, scope id, expiry millis) record per active cooldown.
+ * Scope ids are only meaningful within one file; they are mapped back to names on load
+ */
+public final class CooldownFile {
+    private static final int MAGIC = 0x4B50434C;  // "KPCL"
+    private static final int VERSION = 1;
+
+    private CooldownFile() {}
+
+    /**
+     * Load the cooldowns that are still active
+     * @param now Records expiring at or before this time are skipped
+     * @return The contents (empty if the file does not exist)
+     */
+    public static Contents read(File file, long now) throws IOException {
+        Contents contents = new Contents();
+        if (!file.exists()) {
+            return contents;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cooldown file: " + file.getName());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported cooldown file version " + version);
+            }
+
+            int scopeCount = in.readInt();
+            for (int i = 0; i < scopeCount; i++) {
+                contents.addScope(in.readInt(), in.readUTF());
+            }
+
+            int recordCount = in.readInt();
+            for (int i = 0; i < recordCount; i++) {
+                long most = in.readLong();
+                long least = in.readLong();
+                int scope = in.readInt();
+                long expiry = in.readLong();
+                if (expiry > now) {
+                    contents.addRecord(most, least, scope, expiry);
+                }
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Atomically replace the file with the given cooldowns in one sequential write
+     */
+    public static void write(File file, Contents contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + contents.recordCount * 28);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(contents.scopeIds.size());
+            for (int i = 0; i < contents.scopeIds.size(); i++) {
+                out.writeInt(contents.scopeIds.get(i));
+                out.writeUTF(contents.scopeNames.get(i));
+            }
+
+            out.writeInt(contents.recordCount);
+            for (int i = 0; i < contents.recordCount; i++) {
+                int base = i * 3;
+                out.writeLong(contents.records[base]);
+                out.writeLong(contents.records[base + 1]);
+                out.writeInt(contents.scopes[i]);
+                out.writeLong(contents.records[base + 2]);
+            }
+        }
+        PortalSnapshotFile.writeAtomically(file, bytes.toByteArray());
+    }
+
+    /**
+     * Scope names plus cooldown records, packed into primitive arrays
+     */
+    public static final class Contents {
+        private final List<Integer> scopeIds = new ArrayList<>();
+        private final List<String> scopeNames = new ArrayList<>();
+        private long[] records = new long[48];  // most, least, expiry per record
+        private int[] scopes = new int[16];
+        private int recordCount;
+
+        /**
+         * @param name Stable name of the scope, e.g. "portal:hub"
+         */
+        public void addScope(int id, String name) {
+            scopeIds.add(id);
+            scopeNames.add(name);
+        }
+
+        public void addRecord(long most, long least, int scope, long expiry) {
+            if (recordCount == scopes.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+                scopes = Arrays.copyOf(scopes, scopes.length * 2);
+            }
+            int base = recordCount * 3;
+            records[base] = most;
+            records[base + 1] = least;
+            records[base + 2] = expiry;
+            scopes[recordCount++] = scope;
+        }
+
+        public int getScopeCount() {
+            return scopeIds.size();
+        }
+
+        public int getScopeId(int index) {
+            return scopeIds.get(index);
+        }
+
+        public String getScopeName(int index) {
+            return scopeNames.get(index);
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        public long getMostBits(int index) {
+            return records[index * 3];
+        }
+
+        public long getLeastBits(int index) {
+            return records[index * 3 + 1];
+        }
+
+        public int getScope(int index) {
+            return scopes[index];
+        }
+
+        public long getExpiry(int index) {
+            return records[index * 3 + 2];
+        }
+    }
+}
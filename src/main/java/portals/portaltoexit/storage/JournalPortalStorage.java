@@ -0,0 +1,451 @@
+package portals.portaltoexit.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change journal layered on top of the YAML snapshot
+ * Each record is [length][type + payload][crc32], so a torn write only ever
+ * damages the last record, which is dropped on replay. Compaction folds the
+ * journal into a new snapshot and bumps the epoch shared by both files.
+ * The journal lives next to the YAML file that doubles as its snapshot.
+ */
+public class JournalPortalStorage implements PortalStorage {
+    private static final int MAGIC = 0x4B504A4C;  // "KPJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;  // magic + version + epoch
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private static final byte RECORD_CREATE = 1;
+    private static final byte RECORD_UPDATE_FIELD = 2;
+    private static final byte RECORD_EXIT_ADD = 3;
+    private static final byte RECORD_EXIT_REMOVE = 4;
+    private static final byte RECORD_DELETE = 5;
+
+    private static final String EXIT_POINTS = "exitPoints";
+
+    private final Logger logger;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final long compactThresholdBytes;
+
+    // Last state written to snapshot + journal, keyed by lower-case name
+    private final Map<String, Map<String, Object>> persisted = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long epoch;
+    private int pendingRecords;
+
+    public JournalPortalStorage(Logger logger, File snapshotFile, File journalFile, long compactThresholdBytes) {
+        this.logger = logger;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.compactThresholdBytes = compactThresholdBytes;
+    }
+
+    /**
+     * Load the snapshot, replay the journal on top of it and open the journal for appending
+     */
+    @Override
+    public void open() throws IOException {
+        close();
+        Map<String, Map<String, Object>> state = new LinkedHashMap<>();
+        long validLength = loadState(state);
+        openChannel(validLength);
+
+        persisted.clear();
+        persisted.putAll(state);
+    }
+
+    /**
+     * Read a snapshot plus journal without opening or repairing either file
+     * @return Serialized portals keyed by lower-case name
+     */
+    public static Map<String, Map<String, Object>> readState(Logger logger, File snapshotFile, File journalFile) throws IOException {
+        Map<String, Map<String, Object>> state = new LinkedHashMap<>();
+        new JournalPortalStorage(logger, snapshotFile, journalFile, Long.MAX_VALUE).loadState(state);
+        return state;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadAll() {
+        return new LinkedHashMap<>(persisted);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadByWorld(UUID worldId) {
+        Map<String, Map<String, Object>> inWorld = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : persisted.entrySet()) {
+            if (worldId.equals(PortalSerialization.getWorldId(entry.getValue()))) {
+                inWorld.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return inWorld;
+    }
+
+    @Override
+    public void batchUpsert(Map<String, Map<String, Object>> portals) throws IOException {
+        saveChanges(portals, Collections.emptyList());
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        saveChanges(Collections.emptyMap(), Collections.singletonList(name));
+    }
+
+    /**
+     * Append the difference between the persisted state and the given changes
+     * @param upserts Detached serialized maps of created or modified portals
+     * @param deletes Lower-case names of removed portals
+     */
+    @Override
+    public void saveChanges(Map<String, Map<String, Object>> upserts, Collection<String> deletes) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        int records = 0;
+
+        for (Map.Entry<String, Map<String, Object>> entry : upserts.entrySet()) {
+            Map<String, Object> previous = persisted.put(entry.getKey(), entry.getValue());
+            records += previous == null
+                    ? writeCreate(out, entry.getKey(), entry.getValue())
+                    : writeDiff(out, entry.getKey(), previous, entry.getValue());
+        }
+        for (String name : deletes) {
+            if (persisted.remove(name) != null) {
+                writeRecord(out, RECORD_DELETE, name, payload -> { });
+                records++;
+            }
+        }
+
+        if (records == 0) {
+            return;
+        }
+
+        // One write + force per flush keeps the syscall count independent of the record count
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        pendingRecords += records;
+
+        if (channel.size() >= compactThresholdBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Fold the journal into a fresh snapshot if it holds any records
+     */
+    @Override
+    public void checkpoint() throws IOException {
+        if (pendingRecords > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Write the persisted state as a new snapshot and start an empty journal
+     * The snapshot is written first; a crash before the journal is reset leaves a
+     * journal with an older epoch, which is ignored on the next load.
+     */
+    public void compact() throws IOException {
+        long nextEpoch = epoch + 1;
+        PortalSnapshotFile.write(snapshotFile, persisted, nextEpoch);
+
+        channel.truncate(0);
+        channel.position(0);
+        writeHeader(nextEpoch);
+        channel.force(true);
+
+        epoch = nextEpoch;
+        pendingRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // Returns the length of the valid journal prefix, or -1 if the journal must be discarded
+    private long loadState(Map<String, Map<String, Object>> state) throws IOException {
+        PortalSnapshotFile.Snapshot snapshot = PortalSnapshotFile.read(snapshotFile);
+        epoch = snapshot.getEpoch();
+        state.putAll(snapshot.getPortals());
+        return journalFile.exists() ? replay(state) : -1;
+    }
+
+    private long replay(Map<String, Map<String, Object>> state) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel in = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                logger.warning("Ignoring unreadable portal journal (" + size + " bytes)");
+                return -1;
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // Keep reading until the whole file is buffered
+            }
+            buffer.flip();
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            logger.warning("Ignoring portal journal with an unknown header");
+            return -1;
+        }
+        long journalEpoch = buffer.getLong();
+        if (journalEpoch != epoch) {
+            // Left over from before the last compaction; the snapshot already contains it
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        int applied = 0;
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || buffer.remaining() < length + 4) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                buffer.position(start);
+                break;
+            }
+
+            try {
+                applyRecord(state, payload);
+                applied++;
+            } catch (IOException | RuntimeException e) {
+                // The record is intact but its contents cannot be parsed
+                logger.warning("Skipping unreadable portal journal record: " + e.getMessage());
+            }
+        }
+
+        if (buffer.hasRemaining()) {
+            logger.warning("Discarding " + buffer.remaining() + " bytes of incomplete portal journal data");
+        }
+        pendingRecords = applied;
+        return buffer.position();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyRecord(Map<String, Map<String, Object>> state, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String name = readString(in);
+
+        if (type == RECORD_CREATE) {
+            state.put(name, decodeMap(readString(in)));
+            return;
+        }
+        if (type == RECORD_DELETE) {
+            state.remove(name);
+            return;
+        }
+
+        Map<String, Object> data = state.get(name);
+        if (data == null) {
+            return;
+        }
+
+        switch (type) {
+            case RECORD_UPDATE_FIELD: {
+                String field = readString(in);
+                if (in.readBoolean()) {
+                    data.put(field, PortalSerialization.decode(readString(in)));
+                } else {
+                    data.remove(field);
+                }
+                break;
+            }
+            case RECORD_EXIT_ADD:
+            case RECORD_EXIT_REMOVE: {
+                Object exit = PortalSerialization.decode(readString(in));
+                List<Object> exits = data.containsKey(EXIT_POINTS)
+                        ? new ArrayList<>((List<Object>) data.get(EXIT_POINTS))
+                        : new ArrayList<>();
+                if (type == RECORD_EXIT_ADD) {
+                    exits.add(exit);
+                } else {
+                    exits.remove(exit);
+                }
+                data.put(EXIT_POINTS, exits);
+                break;
+            }
+            default:
+                throw new IOException("unknown record type " + type);
+        }
+    }
+
+    private int writeCreate(DataOutputStream out, String name, Map<String, Object> data) throws IOException {
+        String encoded = PortalSerialization.encode(data);
+        writeRecord(out, RECORD_CREATE, name, payload -> writeString(payload, encoded));
+        return 1;
+    }
+
+    private int writeDiff(DataOutputStream out, String name, Map<String, Object> previous, Map<String, Object> current) throws IOException {
+        int records = 0;
+        Set<String> fields = new LinkedHashSet<>(previous.keySet());
+        fields.addAll(current.keySet());
+
+        for (String field : fields) {
+            Object before = previous.get(field);
+            Object after = current.get(field);
+            if (Objects.equals(before, after)) {
+                continue;
+            }
+
+            if (EXIT_POINTS.equals(field)) {
+                int exitRecords = writeExitDiff(out, name, asList(before), asList(after));
+                if (exitRecords >= 0) {
+                    records += exitRecords;
+                    continue;
+                }
+            }
+
+            writeRecord(out, RECORD_UPDATE_FIELD, name, payload -> {
+                writeString(payload, field);
+                payload.writeBoolean(after != null);
+                if (after != null) {
+                    writeString(payload, PortalSerialization.encode(after));
+                }
+            });
+            records++;
+        }
+        return records;
+    }
+
+    // Express an exit list change as removals followed by appends; -1 if it was reordered
+    private int writeExitDiff(DataOutputStream out, String name, List<?> before, List<?> after) throws IOException {
+        List<Object> kept = new ArrayList<>();
+        List<Object> removed = new ArrayList<>();
+        for (Object exit : before) {
+            if (after.contains(exit)) {
+                kept.add(exit);
+            } else {
+                removed.add(exit);
+            }
+        }
+        if (kept.size() > after.size() || !kept.equals(after.subList(0, kept.size()))
+                || !isLocations(removed) || !isLocations(after)) {
+            return -1;
+        }
+
+        for (Object exit : removed) {
+            String encoded = PortalSerialization.encode(exit);
+            writeRecord(out, RECORD_EXIT_REMOVE, name, payload -> writeString(payload, encoded));
+        }
+        for (Object exit : after.subList(kept.size(), after.size())) {
+            String encoded = PortalSerialization.encode(exit);
+            writeRecord(out, RECORD_EXIT_ADD, name, payload -> writeString(payload, encoded));
+        }
+        return removed.size() + after.size() - kept.size();
+    }
+
+    private void writeRecord(DataOutputStream out, byte type, String name, PayloadWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(type);
+        writeString(payload, name);
+        body.write(payload);
+        payload.flush();
+
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private void openChannel(long validLength) throws IOException {
+        File parent = journalFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (validLength < 0) {
+            channel.truncate(0);
+            channel.position(0);
+            writeHeader(epoch);
+            channel.force(true);
+            pendingRecords = 0;
+        } else {
+            // Drop any torn tail record so new appends start on a record boundary
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+    }
+
+    private void writeHeader(long headerEpoch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(headerEpoch).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decodeMap(String encoded) throws IOException {
+        Object value = PortalSerialization.decode(encoded);
+        if (!(value instanceof Map)) {
+            throw new IOException("create record does not contain a portal");
+        }
+        return new LinkedHashMap<>((Map<String, Object>) value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            throw new IOException("invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<?> asList(Object value) {
+        return value instanceof List ? (List<?>) value : Collections.emptyList();
+    }
+
+    private static boolean isLocations(List<?> values) {
+        for (Object value : values) {
+            if (!PortalSerialization.isLocation(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream payload) throws IOException;
+    }
+}
@@ -0,0 +1,192 @@
+package portals.portaltoexit.storage;
+
+import org.bukkit.Location;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import portals.portaltoexit.data.Portal;
+
+import java.util.*;
+
+/**
+ * Helpers for moving serialized portal data between the main thread and storage backends
+ * Serialized data only holds plain values: locations and other serializable objects are
+ * kept as their type-tagged maps, so storage threads never resolve worlds. They are only
+ * turned back into objects by {@link #restore(Map)} on the main thread
+ */
+public final class PortalSerialization {
+    /** World UID captured when the portal was detached */
+    public static final String WORLD_ID_KEY = "worldId";
+    private static final String LOCATION_ALIAS = ConfigurationSerialization.getAlias(Location.class);
+
+    private PortalSerialization() {}
+
+    /**
+     * Serialize a portal into a detached, immutable map that is safe to read from another thread
+     * Main thread only
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> detach(Portal portal) {
+        Map<String, Object> data = (Map<String, Object>) detachValue(portal.serialize());
+        Location location = portal.getLocation();
+        if (location != null && location.isWorldLoaded()) {
+            Map<String, Object> withWorld = new LinkedHashMap<>(data);
+            withWorld.put(WORLD_ID_KEY, location.getWorld().getUID().toString());
+            data = withWorld;
+        }
+        return Collections.unmodifiableMap(data);
+    }
+
+    /**
+     * Rebuild a portal from serialized data without sharing any mutable state with it
+     * Main thread only
+     * @throws RuntimeException If the data is invalid or its world is not loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static Portal restore(Map<String, Object> data) {
+        Map<String, Object> restored = (Map<String, Object>) restoreValue(data);
+        if (!(restored.get("location") instanceof Location)) {
+            // Bukkit logs and returns null for locations in unknown worlds
+            throw new IllegalArgumentException("its world is not loaded");
+        }
+        return Portal.deserialize(restored);
+    }
+
+    /**
+     * Get the world UID recorded when a serialized portal was detached
+     * @return The world UID, or null if none was recorded
+     */
+    public static UUID getWorldId(Map<String, Object> data) {
+        Object worldId = data.get(WORLD_ID_KEY);
+        if (worldId instanceof String) {
+            try {
+                return UUID.fromString((String) worldId);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the world UID of a serialized portal, falling back to its location's world name
+     * for data saved before world UIDs were recorded
+     * @param worlds UIDs of the loaded worlds by name, captured on the main thread
+     * @return The world UID, or null if it is unknown
+     */
+    public static UUID getWorldId(Map<String, Object> data, Map<String, UUID> worlds) {
+        UUID worldId = getWorldId(data);
+        if (worldId != null) {
+            return worldId;
+        }
+        Object location = data.get("location");
+        return location instanceof Map ? worlds.get(String.valueOf(((Map<?, ?>) location).get("world"))) : null;
+    }
+
+    /**
+     * Record the world a serialized portal is stored under if it has no world UID yet
+     * @return The data itself, or a copy with the world UID added
+     */
+    public static Map<String, Object> withWorldId(Map<String, Object> data, UUID worldId) {
+        if (worldId == null || data.get(WORLD_ID_KEY) != null) {
+            return data;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>(data);
+        copy.put(WORLD_ID_KEY, worldId.toString());
+        return copy;
+    }
+
+    /**
+     * @return True if the value is a serialized location
+     */
+    public static boolean isLocation(Object value) {
+        return value instanceof Map
+                && LOCATION_ALIAS.equals(((Map<?, ?>) value).get(ConfigurationSerialization.SERIALIZED_TYPE_KEY));
+    }
+
+    /**
+     * Encode a serialized value as a standalone YAML document
+     */
+    public static String encode(Object value) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("v", value);
+        return config.saveToString();
+    }
+
+    /**
+     * Decode a value written by {@link #encode(Object)}, leaving serialized objects as maps
+     */
+    public static Object decode(String encoded) {
+        Map<String, Object> document = parse(encoded);
+        return document.get("v");
+    }
+
+    /**
+     * Parse a YAML document into plain maps, lists and scalars
+     * Unlike YamlConfiguration this does not deserialize objects, so it never touches worlds
+     * @return The top-level mapping (empty for an empty document)
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parse(String yaml) {
+        Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+        if (document == null) {
+            return new LinkedHashMap<>();
+        }
+        if (!(document instanceof Map)) {
+            throw new IllegalArgumentException("not a YAML mapping");
+        }
+        return (Map<String, Object>) document;
+    }
+
+    private static Object detachValue(Object value) {
+        if (value instanceof ConfigurationSerializable) {
+            Map<String, Object> typed = new LinkedHashMap<>();
+            typed.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY,
+                    ConfigurationSerialization.getAlias(((ConfigurationSerializable) value).getClass()));
+            typed.putAll(((ConfigurationSerializable) value).serialize());
+            return detachValue(typed);
+        }
+        if (value instanceof Float) {
+            // Read back from YAML as a double; keep both sides comparable
+            return ((Float) value).doubleValue();
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(detachValue(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(String.valueOf(entry.getKey()), detachValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+
+    private static Object restoreValue(Object value) {
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(restoreValue(element));
+            }
+            return copy;
+        }
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(String.valueOf(entry.getKey()), restoreValue(entry.getValue()));
+            }
+            return copy.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)
+                    ? ConfigurationSerialization.deserializeObject(copy)
+                    : copy;
+        }
+        return value;
+    }
+}
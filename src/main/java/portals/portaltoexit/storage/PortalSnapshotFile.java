@@ -0,0 +1,115 @@
+package portals.portaltoexit.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import portals.portaltoexit.data.Portal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes YAML portal snapshot files
+ */
+public final class PortalSnapshotFile {
+    public static final String EPOCH_KEY = "journal-epoch";
+    private static final String PORTAL_ALIAS = ConfigurationSerialization.getAlias(Portal.class);
+
+    private PortalSnapshotFile() {}
+
+    /**
+     * Load every serialized portal and the recorded journal epoch from a snapshot file
+     * Portals are left serialized (see {@link PortalSerialization}), so this is safe off the main thread
+     * @return The snapshot (empty if the file does not exist)
+     */
+    @SuppressWarnings("unchecked")
+    public static Snapshot read(File file) throws IOException {
+        Map<String, Map<String, Object>> portals = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return new Snapshot(portals, 0);
+        }
+
+        Map<String, Object> config;
+        try {
+            config = PortalSerialization.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IOException("Could not read " + file.getName() + ": " + e.getMessage(), e);
+        }
+
+        Object section = config.get("portals");
+        if (section instanceof Map) {
+            for (Object value : ((Map<?, ?>) section).values()) {
+                if (value instanceof Map && ((Map<?, ?>) value).get("name") instanceof String) {
+                    Map<String, Object> data = new LinkedHashMap<>((Map<String, Object>) value);
+                    data.remove(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+                    portals.put(((String) data.get("name")).toLowerCase(), data);
+                }
+            }
+        }
+        Object epoch = config.get(EPOCH_KEY);
+        return new Snapshot(portals, epoch instanceof Number ? ((Number) epoch).longValue() : 0);
+    }
+
+    /**
+     * Atomically replace a snapshot file with the given serialized portals
+     * @param portals Serialized portal maps (as produced by Portal.serialize)
+     * @param epoch Journal epoch to record, or a negative value to omit it
+     */
+    public static void write(File file, Map<String, Map<String, Object>> portals, long epoch) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        if (epoch >= 0) {
+            config.set(EPOCH_KEY, epoch);
+        }
+        for (Map<String, Object> data : portals.values()) {
+            Map<String, Object> typed = new LinkedHashMap<>();
+            typed.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, PORTAL_ALIAS);
+            typed.putAll(data);
+            config.set("portals." + data.get("name"), typed);
+        }
+        writeAtomically(file, config.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write bytes to a temporary file and move it over the target
+     */
+    public static void writeAtomically(File target, byte[] contents) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = new File(parent, target.getName() + ".tmp");
+        Files.write(temp.toPath(), contents);
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Serialized portals read from a snapshot file together with its journal epoch
+     */
+    public static class Snapshot {
+        private final Map<String, Map<String, Object>> portals;
+        private final long epoch;
+
+        public Snapshot(Map<String, Map<String, Object>> portals, long epoch) {
+            this.portals = portals;
+            this.epoch = epoch;
+        }
+
+        public Map<String, Map<String, Object>> getPortals() {
+            return portals;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package portals.portaltoexit.storage;
+
+import portals.portaltoexit.data.Portal;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Backend that portal data is persisted to
+ * Implementations are only ever called from the persistence writer thread and never touch
+ * Bukkit state. Written and loaded data is serialized portal maps keyed by lower-case
+ * portal name, as produced by {@link PortalSerialization#detach(Portal)}; loaded portals
+ * are rebuilt with {@link PortalSerialization#restore(Map)} on the main thread.
+ */
+public interface PortalStorage {
+
+    /**
+     * Open the backend; must be called before any other method
+     */
+    void open() throws IOException;
+
+    /**
+     * Load every stored portal
+     * @return Serialized portals keyed by lower-case name
+     */
+    Map<String, Map<String, Object>> loadAll() throws IOException;
+
+    /**
+     * Load the stored portals located in one world
+     * @return Serialized portals keyed by lower-case name
+     */
+    Map<String, Map<String, Object>> loadByWorld(UUID worldId) throws IOException;
+
+    /**
+     * Tell the backend which worlds are loaded
+     * Needed to place portals saved before world UIDs were recorded
+     * @param worlds World UIDs by name, captured on the main thread
+     */
+    default void setLoadedWorlds(Map<String, UUID> worlds) {
+    }
+
+    /**
+     * Insert or replace a batch of portals
+     */
+    void batchUpsert(Map<String, Map<String, Object>> portals) throws IOException;
+
+    /**
+     * Delete a portal by lower-case name
+     */
+    void delete(String name) throws IOException;
+
+    /**
+     * Insert or replace one portal
+     */
+    default void upsert(String name, Map<String, Object> data) throws IOException {
+        batchUpsert(Collections.singletonMap(name, data));
+    }
+
+    /**
+     * Persist one flush worth of changes
+     */
+    default void saveChanges(Map<String, Map<String, Object>> upserts, Collection<String> deletes) throws IOException {
+        if (!upserts.isEmpty()) {
+            batchUpsert(upserts);
+        }
+        for (String name : deletes) {
+            delete(name);
+        }
+    }
+
+    /**
+     * Bring the on-disk representation fully up to date (full rewrite, compaction, ...)
+     */
+    default void checkpoint() throws IOException {
+    }
+
+    /**
+     * Drop any state held for a world that is being unloaded
+     * Pending changes for the world have already been saved when this is called
+     */
+    default void releaseWorld(UUID worldId) throws IOException {
+    }
+
+    void close() throws IOException;
+}
@@ -0,0 +1,261 @@
+package portals.portaltoexit.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+/**
+ * Splits portal storage into one shard per world (portals/<worldUUID>.yml)
+ * A shard is only opened once its world is loaded. The legacy single
+ * portals.yml is split into shards as each world loads and retired once
+ * fully migrated.
+ */
+public class ShardedPortalStorage implements PortalStorage {
+    private final Logger logger;
+    private final File shardFolder;
+    private final File legacyDataFile;
+    private final File legacyJournalFile;
+    private final BiFunction<File, File, PortalStorage> shardFactory;  // (snapshot file, journal file) -> shard
+
+    private final Map<UUID, PortalStorage> shards = new HashMap<>();
+    private final Map<String, UUID> portalWorlds = new HashMap<>();  // Lower-case name -> shard it is stored in
+    private Map<String, UUID> loadedWorlds = Collections.emptyMap();  // World name -> UID, from the main thread
+
+    public ShardedPortalStorage(Logger logger, File shardFolder, File legacyDataFile, File legacyJournalFile,
+                                BiFunction<File, File, PortalStorage> shardFactory) {
+        this.logger = logger;
+        this.shardFolder = shardFolder;
+        this.legacyDataFile = legacyDataFile;
+        this.legacyJournalFile = legacyJournalFile;
+        this.shardFactory = shardFactory;
+    }
+
+    @Override
+    public void open() throws IOException {
+        close();
+        if (!shardFolder.exists() && !shardFolder.mkdirs()) {
+            throw new IOException("Could not create " + shardFolder.getPath());
+        }
+    }
+
+    @Override
+    public void setLoadedWorlds(Map<String, UUID> worlds) {
+        loadedWorlds = new HashMap<>(worlds);
+    }
+
+    /**
+     * Load every stored portal, including those of worlds that are not loaded
+     * Shards of unloaded worlds are only opened for the read, and portals still in the
+     * legacy portals.yml are included as well
+     */
+    @Override
+    public Map<String, Map<String, Object>> loadAll() throws IOException {
+        Set<UUID> worldIds = new LinkedHashSet<>(loadedWorlds.values());
+        worldIds.addAll(getStoredWorlds());
+
+        Map<String, Map<String, Object>> portals = new LinkedHashMap<>();
+        for (UUID worldId : worldIds) {
+            Map<String, Map<String, Object>> inWorld;
+            if (shards.containsKey(worldId) || loadedWorlds.containsValue(worldId)) {
+                inWorld = loadByWorld(worldId);
+            } else {
+                PortalStorage shard = shardFactory.apply(new File(shardFolder, worldId + ".yml"), new File(shardFolder, worldId + ".journal"));
+                shard.open();
+                try {
+                    inWorld = shard.loadAll();
+                } finally {
+                    shard.close();
+                }
+            }
+            // Remember which shard each portal came from, even if it was saved without its world UID
+            for (Map.Entry<String, Map<String, Object>> entry : inWorld.entrySet()) {
+                portals.put(entry.getKey(), PortalSerialization.withWorldId(entry.getValue(), worldId));
+            }
+        }
+
+        if (legacyDataFile.exists()) {
+            for (Map.Entry<String, Map<String, Object>> entry : JournalPortalStorage.readState(logger, legacyDataFile, legacyJournalFile).entrySet()) {
+                portals.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return portals;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadByWorld(UUID worldId) throws IOException {
+        Map<String, Map<String, Object>> portals = shard(worldId).loadAll();
+        for (String name : portals.keySet()) {
+            portalWorlds.put(name, worldId);
+        }
+        return portals;
+    }
+
+    @Override
+    public void batchUpsert(Map<String, Map<String, Object>> portals) throws IOException {
+        saveChanges(portals, Collections.emptyList());
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        saveChanges(Collections.emptyMap(), Collections.singletonList(name));
+    }
+
+    @Override
+    public void saveChanges(Map<String, Map<String, Object>> upserts, Collection<String> deletes) throws IOException {
+        Map<UUID, Map<String, Map<String, Object>>> upsertsByWorld = new LinkedHashMap<>();
+        Map<UUID, List<String>> deletesByWorld = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Map<String, Object>> entry : upserts.entrySet()) {
+            UUID worldId = PortalSerialization.getWorldId(entry.getValue(), loadedWorlds);
+            if (worldId == null) {
+                logger.warning("Not saving portal '" + entry.getKey() + "': its world is not loaded");
+                continue;
+            }
+
+            UUID previous = portalWorlds.put(entry.getKey(), worldId);
+            if (previous != null && !previous.equals(worldId)) {
+                deletesByWorld.computeIfAbsent(previous, id -> new ArrayList<>()).add(entry.getKey());
+            }
+            upsertsByWorld.computeIfAbsent(worldId, id -> new LinkedHashMap<>()).put(entry.getKey(), entry.getValue());
+        }
+        for (String name : deletes) {
+            UUID worldId = portalWorlds.remove(name);
+            if (worldId != null) {
+                deletesByWorld.computeIfAbsent(worldId, id -> new ArrayList<>()).add(name);
+            }
+        }
+
+        Set<UUID> changedWorlds = new LinkedHashSet<>(upsertsByWorld.keySet());
+        changedWorlds.addAll(deletesByWorld.keySet());
+        for (UUID worldId : changedWorlds) {
+            shard(worldId).saveChanges(
+                    upsertsByWorld.getOrDefault(worldId, Collections.emptyMap()),
+                    deletesByWorld.getOrDefault(worldId, Collections.emptyList()));
+        }
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        for (PortalStorage shard : shards.values()) {
+            shard.checkpoint();
+        }
+    }
+
+    @Override
+    public void releaseWorld(UUID worldId) throws IOException {
+        PortalStorage shard = shards.remove(worldId);
+        portalWorlds.values().removeIf(worldId::equals);
+        if (shard != null) {
+            shard.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (PortalStorage shard : shards.values()) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        shards.clear();
+        portalWorlds.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private PortalStorage shard(UUID worldId) throws IOException {
+        PortalStorage shard = shards.get(worldId);
+        if (shard != null) {
+            return shard;
+        }
+
+        File snapshotFile = new File(shardFolder, worldId + ".yml");
+        File journalFile = new File(shardFolder, worldId + ".journal");
+        boolean created = !snapshotFile.exists() && !journalFile.exists();
+
+        shard = shardFactory.apply(snapshotFile, journalFile);
+        shard.open();
+        shards.put(worldId, shard);
+
+        if (created) {
+            migrateLegacy(worldId, shard);
+            // Write the shard even if empty so the world counts as migrated
+            shard.checkpoint();
+        }
+        return shard;
+    }
+
+    // Move this world's portals out of the legacy portals.yml (plus journal) into its new shard
+    private void migrateLegacy(UUID worldId, PortalStorage shard) throws IOException {
+        if (!legacyDataFile.exists()) {
+            return;
+        }
+
+        Map<String, Map<String, Object>> legacy = JournalPortalStorage.readState(logger, legacyDataFile, legacyJournalFile);
+        Map<String, Map<String, Object>> migrated = new LinkedHashMap<>();
+        boolean complete = true;
+        for (Map.Entry<String, Map<String, Object>> entry : legacy.entrySet()) {
+            UUID portalWorld = PortalSerialization.getWorldId(entry.getValue(), loadedWorlds);
+            if (worldId.equals(portalWorld)) {
+                migrated.put(entry.getKey(), entry.getValue());
+            } else if (portalWorld == null || !hasShard(portalWorld)) {
+                complete = false;
+            }
+        }
+
+        if (!migrated.isEmpty()) {
+            shard.batchUpsert(migrated);
+            logger.info("Migrated " + migrated.size() + " portals for world " + worldId + " out of " + legacyDataFile.getName());
+        }
+
+        if (complete) {
+            retire(legacyDataFile);
+            retire(legacyJournalFile);
+            logger.info("Every portal has been moved into per-world files; kept " + legacyDataFile.getName() + ".migrated as a backup");
+        }
+    }
+
+    // Worlds that have a shard file, loaded or not
+    private List<UUID> getStoredWorlds() {
+        List<UUID> worldIds = new ArrayList<>();
+        String[] names = shardFolder.list();
+        if (names == null) {
+            return worldIds;
+        }
+        for (String name : names) {
+            int dot = name.lastIndexOf('.');
+            if (dot < 0 || !(name.endsWith(".yml") || name.endsWith(".journal"))) {
+                continue;
+            }
+            try {
+                UUID worldId = UUID.fromString(name.substring(0, dot));
+                if (!worldIds.contains(worldId)) {
+                    worldIds.add(worldId);
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a shard
+            }
+        }
+        return worldIds;
+    }
+
+    private boolean hasShard(UUID worldId) {
+        return shards.containsKey(worldId)
+                || new File(shardFolder, worldId + ".yml").exists()
+                || new File(shardFolder, worldId + ".journal").exists();
+    }
+
+    private static void retire(File file) throws IOException {
+        if (file.exists()) {
+            Files.move(file.toPath(), new File(file.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
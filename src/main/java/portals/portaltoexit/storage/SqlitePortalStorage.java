@@ -0,0 +1,170 @@
+package portals.portaltoexit.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Stores portals as rows in an embedded SQLite database (portals.db)
+ * Each flush only touches the changed rows, and owner/world are indexed
+ * columns so single-world loads do not read the whole table
+ */
+public class SqlitePortalStorage implements PortalStorage {
+    private static final String UPSERT_SQL =
+            "INSERT INTO portals (name, owner, world, data) VALUES (?, ?, ?, ?) "
+            + "ON CONFLICT(name) DO UPDATE SET owner = excluded.owner, world = excluded.world, data = excluded.data";
+    private static final String DELETE_SQL = "DELETE FROM portals WHERE name = ?";
+
+    private final Logger logger;
+    private final File databaseFile;
+    private Connection connection;
+    private Map<String, UUID> loadedWorlds = Collections.emptyMap();  // World name -> UID, from the main thread
+
+    public SqlitePortalStorage(Logger logger, File databaseFile) {
+        this.logger = logger;
+        this.databaseFile = databaseFile;
+    }
+
+    @Override
+    public void open() throws IOException {
+        close();
+        try {
+            // Bundled with Spigot/Paper; loading it explicitly avoids relying on driver auto-registration
+            Class.forName("org.sqlite.JDBC");
+            File parent = databaseFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+
+            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS portals ("
+                        + "name TEXT PRIMARY KEY, "
+                        + "owner TEXT NOT NULL, "
+                        + "world TEXT, "
+                        + "data TEXT NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_portals_owner ON portals (owner)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_portals_world ON portals (world)");
+            }
+            connection.setAutoCommit(false);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open " + databaseFile.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void setLoadedWorlds(Map<String, UUID> worlds) {
+        loadedWorlds = new HashMap<>(worlds);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadAll() throws IOException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name, world, data FROM portals")) {
+            return readPortals(statement);
+        } catch (SQLException e) {
+            throw new IOException("Could not load portals: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadByWorld(UUID worldId) throws IOException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name, world, data FROM portals WHERE world = ?")) {
+            statement.setString(1, worldId.toString());
+            return readPortals(statement);
+        } catch (SQLException e) {
+            throw new IOException("Could not load portals for world " + worldId + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void batchUpsert(Map<String, Map<String, Object>> portals) throws IOException {
+        saveChanges(portals, Collections.emptyList());
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        saveChanges(Collections.emptyMap(), Collections.singletonList(name));
+    }
+
+    @Override
+    public void saveChanges(Map<String, Map<String, Object>> upserts, Collection<String> deletes) throws IOException {
+        try {
+            if (!upserts.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                    for (Map.Entry<String, Map<String, Object>> entry : upserts.entrySet()) {
+                        Map<String, Object> data = entry.getValue();
+                        UUID worldId = PortalSerialization.getWorldId(data, loadedWorlds);
+                        statement.setString(1, entry.getKey());
+                        statement.setString(2, String.valueOf(data.get("owner")));
+                        statement.setString(3, worldId != null ? worldId.toString() : null);
+                        statement.setString(4, PortalSerialization.encode(data));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+
+            if (!deletes.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+                    for (String name : deletes) {
+                        statement.setString(1, name);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // Report the original failure
+            }
+            throw new IOException("Could not save portals: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Could not close " + databaseFile.getName() + ": " + e.getMessage(), e);
+        } finally {
+            connection = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> readPortals(PreparedStatement statement) throws SQLException {
+        Map<String, Map<String, Object>> portals = new LinkedHashMap<>();
+        try (ResultSet results = statement.executeQuery()) {
+            while (results.next()) {
+                String name = results.getString(1);
+                try {
+                    String world = results.getString(2);
+                    Object data = PortalSerialization.decode(results.getString(3));
+                    if (data instanceof Map) {
+                        // Rows written before world UIDs were part of the data still have the column
+                        portals.put(name, PortalSerialization.withWorldId(new LinkedHashMap<>((Map<String, Object>) data),
+                                world != null ? UUID.fromString(world) : null));
+                    }
+                } catch (RuntimeException e) {
+                    logger.warning("Skipping portal '" + name + "': " + e.getMessage());
+                }
+            }
+        }
+        // End the implicit read transaction so WAL checkpoints are not held back
+        connection.commit();
+        return portals;
+    }
+}
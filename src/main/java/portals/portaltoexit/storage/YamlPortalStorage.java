@@ -0,0 +1,93 @@
+package portals.portaltoexit.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Stores portals in a single YAML file, rewriting the whole file on each save
+ */
+public class YamlPortalStorage implements PortalStorage {
+    private final Logger logger;
+    private final File dataFile;
+    private final File journalFile;
+
+    // Current contents of the data file, keyed by lower-case name
+    private final Map<String, Map<String, Object>> portals = new LinkedHashMap<>();
+
+    public YamlPortalStorage(Logger logger, File dataFile, File journalFile) {
+        this.logger = logger;
+        this.dataFile = dataFile;
+        this.journalFile = journalFile;
+    }
+
+    @Override
+    public void open() throws IOException {
+        portals.clear();
+
+        if (journalFile.exists()) {
+            // Switched back from journal mode: fold the leftover journal into the YAML file
+            JournalPortalStorage leftover = new JournalPortalStorage(logger, dataFile, journalFile, Long.MAX_VALUE);
+            leftover.open();
+            portals.putAll(leftover.loadAll());
+            write();
+            leftover.close();
+            Files.delete(journalFile.toPath());
+            return;
+        }
+
+        portals.putAll(PortalSnapshotFile.read(dataFile).getPortals());
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadAll() {
+        return new LinkedHashMap<>(portals);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> loadByWorld(UUID worldId) {
+        Map<String, Map<String, Object>> inWorld = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : portals.entrySet()) {
+            if (worldId.equals(PortalSerialization.getWorldId(entry.getValue()))) {
+                inWorld.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return inWorld;
+    }
+
+    @Override
+    public void batchUpsert(Map<String, Map<String, Object>> batch) throws IOException {
+        portals.putAll(batch);
+        write();
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        if (portals.remove(name) != null) {
+            write();
+        }
+    }
+
+    @Override
+    public void saveChanges(Map<String, Map<String, Object>> upserts, Collection<String> deletes) throws IOException {
+        portals.putAll(upserts);
+        portals.keySet().removeAll(deletes);
+        write();
+    }
+
+    @Override
+    public void checkpoint() throws IOException {
+        write();
+    }
+
+    @Override
+    public void close() {
+        portals.clear();
+    }
+
+    private void write() throws IOException {
+        PortalSnapshotFile.write(dataFile, portals, -1);
+    }
+}
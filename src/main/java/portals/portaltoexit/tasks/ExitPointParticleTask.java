@@ -13,9 +13,13 @@ import portals.portaltoexit.utils.VersionCompatibility;
  */
 public class ExitPointParticleTask extends BukkitRunnable {
     private final Portaltoexit plugin;
+    private final VersionCompatibility.ResolvedParticle happyVillagerParticle;
+    private final VersionCompatibility.ResolvedParticle endRodParticle;
 
     public ExitPointParticleTask(Portaltoexit plugin) {
         this.plugin = plugin;
+        this.happyVillagerParticle = VersionCompatibility.resolveParticle("HAPPY_VILLAGER");
+        this.endRodParticle = VersionCompatibility.resolveParticle("END_ROD");
     }
 
     @Override
@@ -58,7 +62,7 @@ public class ExitPointParticleTask extends BukkitRunnable {
         Location particleLocation = location.clone().add(0, 0.5, 0);
 
         // Green particles to distinguish from purple portal entrance
-        VersionCompatibility.spawnParticle(particleLocation, "VILLAGER_HAPPY", 3, 0.3, 0.5, 0.3, 0.01);
+        happyVillagerParticle.spawn(particleLocation, 3, 0.3, 0.5, 0.3, 0.01);
 
         // Ring effect at ground level
         double radius = 1.0;
@@ -67,14 +71,14 @@ public class ExitPointParticleTask extends BukkitRunnable {
             double x = Math.cos(angle) * radius;
             double z = Math.sin(angle) * radius;
             Location ringLoc = location.clone().add(x, 0.1, z);
-            VersionCompatibility.spawnParticle(ringLoc, "END_ROD", 1, 0, 0, 0, 0);
+            endRodParticle.spawn(ringLoc, 1, 0, 0, 0, 0);
         }
 
         // Upward beam effect every few ticks
         if (System.currentTimeMillis() % 3000 < 100) { // Show beam briefly every 3 seconds
             for (double y = 0; y < 3; y += 0.5) {
                 Location beamLoc = location.clone().add(0, y, 0);
-                VersionCompatibility.spawnParticle(beamLoc, "VILLAGER_HAPPY", 1, 0.1, 0.1, 0.1, 0);
+                happyVillagerParticle.spawn(beamLoc, 1, 0.1, 0.1, 0.1, 0);
             }
         }
     }
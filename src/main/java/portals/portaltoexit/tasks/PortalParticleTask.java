@@ -11,10 +11,16 @@ import portals.portaltoexit.utils.VersionCompatibility;
  */
 public class PortalParticleTask extends BukkitRunnable {
     private final Portaltoexit plugin;
+    private final VersionCompatibility.ResolvedParticle portalParticle;
+    private final VersionCompatibility.ResolvedParticle magicParticle;
+    private final VersionCompatibility.ResolvedParticle endRodParticle;
     private int tickCounter = 0;
 
     public PortalParticleTask(Portaltoexit plugin) {
         this.plugin = plugin;
+        this.portalParticle = VersionCompatibility.resolveParticle(VersionCompatibility.getPortalParticle());
+        this.magicParticle = VersionCompatibility.resolveParticle(VersionCompatibility.getMagicParticle());
+        this.endRodParticle = VersionCompatibility.resolveParticle("END_ROD");
     }
 
     @Override
@@ -59,9 +65,8 @@ public class PortalParticleTask extends BukkitRunnable {
             Location particleLoc = location.clone().add(x, y, z);
 
             // Use version-compatible particle spawning
-            VersionCompatibility.spawnParticle(
+            portalParticle.spawn(
                 particleLoc,
-                VersionCompatibility.getPortalParticle(),
                 2,  // count
                 0.1, 0.1, 0.1,  // offset
                 0.01  // speed
@@ -70,18 +75,16 @@ public class PortalParticleTask extends BukkitRunnable {
 
         // Add some magical particles occasionally
         if (tickCounter % 20 == 0) {  // Every second
-            VersionCompatibility.spawnParticle(
+            magicParticle.spawn(
                 location.clone().add(0, 1, 0),
-                VersionCompatibility.getMagicParticle(),
                 10,
                 0.5, 0.5, 0.5,
                 0.05
             );
 
             // Add end rod particles for extra effect
-            VersionCompatibility.spawnParticle(
+            endRodParticle.spawn(
                 location.clone().add(0, 2, 0),
-                "END_ROD",
                 5,
                 0.3, 0.3, 0.3,
                 0.02
@@ -0,0 +1,80 @@
+package portals.portaltoexit.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples an index in proportion to its weight in constant time (Vose's alias method)
+ * Building is linear in the number of weights; a built table is immutable and safe to share
+ */
+public final class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+
+    private AliasTable(double[] probability, int[] alias) {
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    /**
+     * Build a table from non-negative weights
+     * @return The table, or null if there is nothing to sample (no positive weight)
+     */
+    public static AliasTable build(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(weight, 0);
+        }
+        if (n == 0 || total <= 0) {
+            return null;
+        }
+
+        // Scale so the average weight is 1, then pair each short column with a tall one
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = Math.max(weights[i], 0) * n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is full up to rounding error
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+        return new AliasTable(probability, alias);
+    }
+
+    /**
+     * @return A random index, drawn in proportion to the weights
+     */
+    public int sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
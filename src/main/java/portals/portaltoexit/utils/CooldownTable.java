@@ -0,0 +1,170 @@
+package portals.portaltoexit.utils;
+
+/**
+ * Open-addressing map from (player UUID, scope) to an expiry deadline in epoch millis
+ * The UUID is stored as its two longs and deadlines as primitives, so lookups allocate
+ * nothing; removal shifts later entries back instead of leaving tombstones
+ * Not thread-safe
+ */
+public class CooldownTable {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private int[] scopes;
+    private long[] deadlines;  // 0 marks an empty slot
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public CooldownTable() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return The stored deadline, or 0 if there is none
+     */
+    public long get(long most, long least, int scope) {
+        int slot = indexOf(most, least, scope);
+        return slot < 0 ? 0 : deadlines[slot];
+    }
+
+    /**
+     * Store a deadline, replacing any previous one for the same player and scope
+     */
+    public void put(long most, long least, int scope, long deadline) {
+        if (deadline == 0) {
+            remove(most, least, scope);
+            return;
+        }
+
+        int slot = hash(most, least, scope) & mask;
+        while (deadlines[slot] != 0) {
+            if (mostBits[slot] == most && leastBits[slot] == least && scopes[slot] == scope) {
+                deadlines[slot] = deadline;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        scopes[slot] = scope;
+        deadlines[slot] = deadline;
+        if (++size > resizeThreshold) {
+            rehash(deadlines.length << 1);
+        }
+    }
+
+    /**
+     * @return True if an entry was removed
+     */
+    public boolean remove(long most, long least, int scope) {
+        int slot = indexOf(most, least, scope);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Remove every entry of a player, in any scope
+     */
+    public void removePlayer(long most, long least) {
+        int slot = 0;
+        while (slot < deadlines.length) {
+            // A removal may shift a later entry into this slot, so look at it again
+            if (deadlines[slot] != 0 && mostBits[slot] == most && leastBits[slot] == least) {
+                removeAt(slot);
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit every entry; the table must not be modified while visiting
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < deadlines.length; i++) {
+            if (deadlines[i] != 0) {
+                consumer.accept(mostBits[i], leastBits[i], scopes[i], deadlines[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private int indexOf(long most, long least, int scope) {
+        int slot = hash(most, least, scope) & mask;
+        while (deadlines[slot] != 0) {
+            if (mostBits[slot] == most && leastBits[slot] == least && scopes[slot] == scope) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken
+    private void removeAt(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (deadlines[next] != 0) {
+            int home = hash(mostBits[next], leastBits[next], scopes[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                mostBits[gap] = mostBits[next];
+                leastBits[gap] = leastBits[next];
+                scopes[gap] = scopes[next];
+                deadlines[gap] = deadlines[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        deadlines[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        int[] oldScopes = scopes;
+        long[] oldDeadlines = deadlines;
+        allocate(capacity);
+
+        for (int i = 0; i < oldDeadlines.length; i++) {
+            if (oldDeadlines[i] != 0) {
+                put(oldMost[i], oldLeast[i], oldScopes[i], oldDeadlines[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        scopes = new int[capacity];
+        deadlines = new long[capacity];
+        size = 0;
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public interface EntryConsumer {
+        void accept(long most, long least, int scope, long deadline);
+    }
+
+    private static int hash(long most, long least, int scope) {
+        long h = most * 0x9E3779B97F4A7C15L ^ least ^ (scope * 0xC2B2AE3D27D4EB4FL);
+        h ^= h >>> 32;
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29));
+    }
+}
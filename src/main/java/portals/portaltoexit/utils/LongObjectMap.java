@@ -0,0 +1,174 @@
+package portals.portaltoexit.utils;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing hash map keyed by primitive longs
+ * Avoids boxing chunk/section keys on hot lookup paths
+ */
+public class LongObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR) + 1));
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongObjectMap does not accept null values");
+        }
+
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(values.length << 1);
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        V created = factory.apply(key);
+        put(key, created);
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        V previous = (V) values[slot];
+        values[slot] = null;
+        size--;
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Visit every entry; the map must not be modified while iterating
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(capacity - 1) << 1;
+        return Math.max(DEFAULT_CAPACITY, n);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+}
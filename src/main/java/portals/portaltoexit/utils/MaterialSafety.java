@@ -0,0 +1,90 @@
+package portals.portaltoexit.utils;
+
+import org.bukkit.Material;
+
+import java.util.Collection;
+
+/**
+ * Per-material safety classification, indexed by ordinal
+ * Built once per config load so safety probes are a single array read;
+ * immutable and safe to use from async block scans
+ */
+public final class MaterialSafety {
+    public static final byte PASSABLE = 1;      // Feet and head can occupy the block
+    public static final byte SOLID_GROUND = 2;  // Can be stood on
+    public static final byte DANGEROUS = 4;     // Hurts or traps a player touching it
+    public static final byte LIQUID = 8;
+
+    private final byte[] flags;
+
+    private MaterialSafety(byte[] flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * Classify every material
+     * @param extraDangerous Materials to treat as dangerous on top of the built-in ones
+     * @param extraPassable Materials players may stand inside even though they are solid
+     */
+    public static MaterialSafety build(Collection<Material> extraDangerous, Collection<Material> extraPassable) {
+        Material[] materials = Material.values();
+        byte[] flags = new byte[materials.length];
+        for (Material material : materials) {
+            if (material.isLegacy()) {
+                continue;
+            }
+            flags[material.ordinal()] = classify(material);
+        }
+
+        for (Material material : extraPassable) {
+            flags[material.ordinal()] = (byte) ((flags[material.ordinal()] | PASSABLE) & ~SOLID_GROUND);
+        }
+        for (Material material : extraDangerous) {
+            flags[material.ordinal()] = (byte) ((flags[material.ordinal()] | DANGEROUS) & ~(PASSABLE | SOLID_GROUND));
+        }
+        return new MaterialSafety(flags);
+    }
+
+    private static byte classify(Material material) {
+        String name = material.name();
+        boolean dangerous = material == Material.LAVA || material == Material.CACTUS ||
+                name.endsWith("FIRE") ||  // FIRE, SOUL_FIRE, CAMPFIRE, SOUL_CAMPFIRE
+                name.contains("MAGMA") ||
+                name.contains("WITHER") ||
+                name.contains("BERRY") ||
+                material == Material.POWDER_SNOW;
+        if (dangerous) {
+            return name.equals("LAVA") ? (byte) (DANGEROUS | LIQUID) : DANGEROUS;
+        }
+
+        byte flags = material.isSolid() ? SOLID_GROUND : PASSABLE;
+        if (material == Material.WATER || name.equals("BUBBLE_COLUMN")) {
+            flags |= LIQUID;
+        }
+        return flags;
+    }
+
+    public boolean isPassable(Material material) {
+        return (flags[material.ordinal()] & PASSABLE) != 0;
+    }
+
+    public boolean isSolidGround(Material material) {
+        return (flags[material.ordinal()] & SOLID_GROUND) != 0;
+    }
+
+    public boolean isDangerous(Material material) {
+        return (flags[material.ordinal()] & DANGEROUS) != 0;
+    }
+
+    public boolean isLiquid(Material material) {
+        return (flags[material.ordinal()] & LIQUID) != 0;
+    }
+
+    /**
+     * Check whether a player can stand with their feet, head and the ground on these blocks
+     */
+    public boolean isSafe(Material feet, Material head, Material ground) {
+        return (flags[feet.ordinal()] & flags[head.ordinal()] & PASSABLE) != 0
+                && (flags[ground.ordinal()] & SOLID_GROUND) != 0;
+    }
+}
@@ -0,0 +1,112 @@
+package portals.portaltoexit.utils;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A message pre-split into literal segments and {placeholder} slots
+ * Color codes are translated once at compile time, so rendering is a single
+ * StringBuilder pass over the segments
+ */
+public final class MessageTemplate {
+    private final String[] literals;      // Always one more literal than slots
+    private final String[] placeholders;  // Slot tokens including braces, e.g. "{name}"
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile a raw config message using '&' color codes
+     */
+    public static MessageTemplate compile(String raw) {
+        String text = ChatColor.translateAlternateColorCodes('&', raw);
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int open = text.indexOf('{');
+        while (open >= 0) {
+            int close = findPlaceholderEnd(text, open);
+            if (close < 0) {
+                open = text.indexOf('{', open + 1);
+                continue;
+            }
+
+            literals.add(text.substring(literalStart, open));
+            placeholders.add(text.substring(open, close + 1));
+            literalStart = close + 1;
+            open = text.indexOf('{', literalStart);
+        }
+        literals.add(text.substring(literalStart));
+
+        return new MessageTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * Get the placeholder names (without braces) used by this message
+     */
+    public Set<String> getPlaceholderNames() {
+        if (placeholders.length == 0) {
+            return Collections.emptySet();
+        }
+
+        Set<String> names = new LinkedHashSet<>();
+        for (String placeholder : placeholders) {
+            names.add(placeholder.substring(1, placeholder.length() - 1));
+        }
+        return names;
+    }
+
+    /**
+     * Render the message
+     * @param replacements Alternating placeholder tokens and values, e.g. "{name}", name;
+     *                     slots without a replacement are left as-is
+     */
+    public String render(String... replacements) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder builder = new StringBuilder(literalLength + 16 * placeholders.length);
+        for (int slot = 0; slot < placeholders.length; slot++) {
+            builder.append(literals[slot]).append(valueFor(placeholders[slot], replacements));
+        }
+        return builder.append(literals[placeholders.length]).toString();
+    }
+
+    private static String valueFor(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (placeholder.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        return placeholder;
+    }
+
+    // Placeholder names are letters, digits, '_' and '-'; anything else is literal text
+    private static int findPlaceholderEnd(String text, int open) {
+        for (int i = open + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '}') {
+                return i > open + 1 ? i : -1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
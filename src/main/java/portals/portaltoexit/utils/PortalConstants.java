@@ -13,6 +13,10 @@ public final class PortalConstants {
     public static final double PORTAL_DETECTION_RADIUS = 5.0;
     public static final double PORTAL_WAND_RANGE = 50.0;
     public static final double EXIT_POINT_DETECTION_RADIUS = 2.0;
+    public static final double MAX_NEAR_EXITS_RADIUS = 256.0;  // Largest radius /portal nearexits accepts
+    public static final int MAX_NEAR_EXITS_LISTED = 10;
+    public static final long EXIT_RESERVATION_MILLIS = 10000L;  // How long an exit resolved on approach stays valid
+    public static final long EXIT_RESOLVE_TIMEOUT_TICKS = 600L;  // Give up a teleport whose exit is not ready within 30 seconds
 
     // Search and Safety
     public static final int MAX_SAFE_LOCATION_SEARCH_RADIUS = 10;
@@ -0,0 +1,261 @@
+package portals.portaltoexit.utils;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.HeightMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Searches for a safe standing spot around a location without touching live blocks
+ * The covered chunks are captured as snapshots on the main thread, scanned off-thread
+ * in nearest-first order, and the result is handed back on the main thread
+ * With a heightmap, only the surface of each column is probed; the full cube is
+ * scanned only when the center is covered (caves, overhangs) or no surface spot fits
+ * The same scan can also collect several spaced-out spots for spreading arrivals
+ */
+public final class SafeLocationSearch {
+    // Packed (dx, dy, dz) offsets per radius, sorted nearest-first
+    private static final int[][] OFFSETS = new int[PortalConstants.MAX_SAFE_LOCATION_SEARCH_RADIUS + 1][];
+
+    private final World world;
+    private final MaterialSafety materialSafety;
+    private final Location center;
+    private final int centerX;
+    private final int centerY;
+    private final int centerZ;
+    private final int radius;
+    private final int minY;
+    private final int maxY;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int chunkWidth;
+    private final ChunkSnapshot[] snapshots;
+    private final int[] surfaceHeights;  // Highest block per column, indexed [(dx + r) * side + (dz + r)]; null for cube search
+
+    private SafeLocationSearch(Location center, int radius, MaterialSafety materialSafety, HeightMap heightMap) {
+        this.world = center.getWorld();
+        this.materialSafety = materialSafety;
+        this.center = center.clone();
+        this.centerX = center.getBlockX();
+        this.centerY = center.getBlockY();
+        this.centerZ = center.getBlockZ();
+        this.radius = radius;
+        this.minY = world.getMinHeight();
+        this.maxY = world.getMaxHeight();
+
+        // Capture every chunk the search cube touches (at most 3x3 for the maximum radius)
+        this.minChunkX = (centerX - radius) >> 4;
+        this.minChunkZ = (centerZ - radius) >> 4;
+        this.chunkWidth = ((centerZ + radius) >> 4) - minChunkZ + 1;
+        int chunkLength = ((centerX + radius) >> 4) - minChunkX + 1;
+        this.snapshots = new ChunkSnapshot[chunkLength * chunkWidth];
+        for (int cx = 0; cx < chunkLength; cx++) {
+            for (int cz = 0; cz < chunkWidth; cz++) {
+                snapshots[cx * chunkWidth + cz] = world.getChunkAt(minChunkX + cx, minChunkZ + cz)
+                        .getChunkSnapshot(false, false, false);
+            }
+        }
+
+        // Heightmaps are cheap to read once the chunks are loaded, but only on the main thread
+        int[] heights = null;
+        if (heightMap != null) {
+            int side = 2 * radius + 1;
+            heights = new int[side * side];
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    heights[(dx + radius) * side + (dz + radius)] =
+                            world.getHighestBlockYAt(centerX + dx, centerZ + dz, heightMap);
+                }
+            }
+
+            // A covered center is a cave or overhang; the surface is not where the exit is meant to be
+            if (heights[radius * side + radius] > centerY) {
+                heights = null;
+            }
+        }
+        this.surfaceHeights = heights;
+    }
+
+    /**
+     * Find the nearest safe spot within the radius, preferring spots above the center on ties
+     * Must be called on the main thread; the future is completed on the main thread
+     * @param heightMap Heightmap for a surface search, or null to scan the whole cube
+     * @return Future of the safe location, or of null if none was found
+     */
+    public static CompletableFuture<Location> find(Plugin plugin, Location center, int radius,
+                                                   MaterialSafety materialSafety, HeightMap heightMap) {
+        CompletableFuture<Location> future = new CompletableFuture<>();
+        if (center.getWorld() == null) {
+            future.complete(null);
+            return future;
+        }
+
+        SafeLocationSearch search = new SafeLocationSearch(center,
+                Math.min(Math.max(radius, 0), PortalConstants.MAX_SAFE_LOCATION_SEARCH_RADIUS), materialSafety, heightMap);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            Location found;
+            try {
+                Location surface = search.surfaceHeights != null ? search.scanSurface() : null;
+                found = surface != null ? surface : search.scan();
+            } catch (RuntimeException e) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> future.completeExceptionally(e));
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> future.complete(found));
+        });
+        return future;
+    }
+
+    /**
+     * Collect up to count safe spots within the radius, nearest first and at least spacing blocks
+     * apart horizontally, so arrivals can be spread over them
+     * Must be called on the main thread; the future is completed on the main thread
+     * @return Future of the spots found, possibly empty
+     */
+    public static CompletableFuture<List<Location>> findSpread(Plugin plugin, Location center, int radius, int count,
+                                                               int spacing, MaterialSafety materialSafety) {
+        CompletableFuture<List<Location>> future = new CompletableFuture<>();
+        if (center.getWorld() == null) {
+            future.complete(new ArrayList<>());
+            return future;
+        }
+
+        SafeLocationSearch search = new SafeLocationSearch(center,
+                Math.min(Math.max(radius, 0), PortalConstants.MAX_SAFE_LOCATION_SEARCH_RADIUS), materialSafety, null);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<Location> spots;
+            try {
+                spots = search.scanSpread(count, spacing);
+            } catch (RuntimeException e) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> future.completeExceptionally(e));
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> future.complete(spots));
+        });
+        return future;
+    }
+
+    // One probe per column: stand on the highest block, nearest candidate wins
+    private Location scanSurface() {
+        int side = 2 * radius + 1;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                int index = (dx + radius) * side + (dz + radius);
+                int y = surfaceHeights[index] + 1;
+                int dy = y - centerY;
+                int distance = dx * dx + dy * dy + dz * dz;
+                if (dy < -radius || dy > radius || distance >= bestDistance || !isSafeAt(centerX + dx, y, centerZ + dz)) {
+                    continue;
+                }
+                best = index;
+                bestDistance = distance;
+            }
+        }
+
+        if (best < 0) {
+            return null;
+        }
+        int dx = best / side - radius;
+        int dz = best % side - radius;
+        return center.clone().add(dx, surfaceHeights[best] + 1 - centerY, dz);
+    }
+
+    private Location scan() {
+        int[] offsets = getOffsets(radius);
+        for (int i = 0; i < offsets.length; i++) {
+            int packed = offsets[i];
+            int dx = (byte) (packed >> 16);
+            int dy = (byte) (packed >> 8);
+            int dz = (byte) packed;
+
+            if (isSafeAt(centerX + dx, centerY + dy, centerZ + dz)) {
+                return center.clone().add(dx, dy, dz);
+            }
+        }
+        return null;
+    }
+
+    // Nearest-first like scan(), skipping spots too close to one already taken (one spot per column at most)
+    private List<Location> scanSpread(int count, int spacing) {
+        int[] offsets = getOffsets(radius);
+        int minDistanceSquared = spacing * spacing;
+        int[] taken = new int[count * 2];
+        int found = 0;
+        List<Location> spots = new ArrayList<>(count);
+        for (int i = 0; i < offsets.length && found < count; i++) {
+            int packed = offsets[i];
+            int dx = (byte) (packed >> 16);
+            int dy = (byte) (packed >> 8);
+            int dz = (byte) packed;
+
+            boolean crowded = false;
+            for (int j = 0; j < found && !crowded; j++) {
+                int ox = dx - taken[j * 2];
+                int oz = dz - taken[j * 2 + 1];
+                crowded = ox * ox + oz * oz < minDistanceSquared;
+            }
+            if (crowded || !isSafeAt(centerX + dx, centerY + dy, centerZ + dz)) {
+                continue;
+            }
+
+            taken[found * 2] = dx;
+            taken[found * 2 + 1] = dz;
+            found++;
+            spots.add(center.clone().add(dx, dy, dz));
+        }
+        return spots;
+    }
+
+    private boolean isSafeAt(int x, int y, int z) {
+        if (y - 1 < minY || y + 1 >= maxY) {
+            return false;
+        }
+
+        ChunkSnapshot snapshot = snapshots[((x >> 4) - minChunkX) * chunkWidth + ((z >> 4) - minChunkZ)];
+        int localX = x & 15;
+        int localZ = z & 15;
+        return materialSafety.isSafe(snapshot.getBlockType(localX, y, localZ),
+                snapshot.getBlockType(localX, y + 1, localZ),
+                snapshot.getBlockType(localX, y - 1, localZ));
+    }
+
+    private static int[] getOffsets(int radius) {
+        int[] offsets = OFFSETS[radius];
+        if (offsets == null) {
+            offsets = buildOffsets(radius);
+            OFFSETS[radius] = offsets;  // Benign race: every thread builds the same array
+        }
+        return offsets;
+    }
+
+    private static int[] buildOffsets(int radius) {
+        int side = 2 * radius + 1;
+        long[] keyed = new long[side * side * side];
+        int count = 0;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    long distance = dx * dx + dy * dy + dz * dz;
+                    long below = dy < 0 ? 1 : 0;  // Spots at or above the center win ties
+                    int packed = ((dx & 0xFF) << 16) | ((dy & 0xFF) << 8) | (dz & 0xFF);
+                    keyed[count++] = (distance << 33) | (below << 32) | (packed & 0xFFFFFFFFL);
+                }
+            }
+        }
+
+        Arrays.sort(keyed);
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (int) keyed[i];
+        }
+        return offsets;
+    }
+}
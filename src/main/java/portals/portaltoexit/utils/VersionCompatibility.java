@@ -1,12 +1,20 @@
 package portals.portaltoexit.utils;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import portals.portaltoexit.Portaltoexit;
 
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for handling cross-version compatibility
@@ -18,6 +26,16 @@ public class VersionCompatibility {
     private static final int MAJOR_VERSION;
     private static final int MINOR_VERSION;
 
+    // Names used by other versions for the same effect, tried in order after the requested name
+    private static final Map<String, List<String>> PARTICLE_ALIASES = new HashMap<>();
+    private static final Map<String, List<String>> SOUND_ALIASES = new HashMap<>();
+    private static final Map<String, ResolvedParticle> PARTICLES = new ConcurrentHashMap<>();
+    private static final Map<String, ResolvedSound> SOUNDS = new ConcurrentHashMap<>();
+
+    // Paper-only API, looked up once
+    private static final Method GET_CHUNK_AT_ASYNC = findMethod(World.class, "getChunkAtAsync", int.class, int.class);
+    private static final Method TELEPORT_ASYNC = findMethod(Entity.class, "teleportAsync", Location.class);
+
     static {
         String version = Bukkit.getServer().getClass().getPackage().getName();
         SERVER_VERSION = version.substring(version.lastIndexOf('.') + 1);
@@ -38,6 +56,30 @@ public class VersionCompatibility {
 
         MAJOR_VERSION = tempMajor;
         MINOR_VERSION = tempMinor;
+
+        // 1.20.5 renamed most legacy particle constants
+        aliases(PARTICLE_ALIASES, "HAPPY_VILLAGER", "VILLAGER_HAPPY");
+        aliases(PARTICLE_ALIASES, "WITCH", "SPELL_WITCH");
+        aliases(PARTICLE_ALIASES, "ENCHANT", "ENCHANTMENT_TABLE");
+        aliases(PARTICLE_ALIASES, "FIREWORK", "FIREWORKS_SPARK");
+        aliases(PARTICLE_ALIASES, "SMOKE", "SMOKE_NORMAL");
+        aliases(PARTICLE_ALIASES, "LARGE_SMOKE", "SMOKE_LARGE");
+        aliases(PARTICLE_ALIASES, "EFFECT", "SPELL");
+        aliases(PARTICLE_ALIASES, "INSTANT_EFFECT", "SPELL_INSTANT");
+        aliases(PARTICLE_ALIASES, "ANGRY_VILLAGER", "VILLAGER_ANGRY");
+        aliases(PARTICLE_ALIASES, "POOF", "EXPLOSION_NORMAL");
+
+        aliases(SOUND_ALIASES, "ENTITY_ENDERMAN_TELEPORT", "ENTITY_ENDERMEN_TELEPORT", "ENDERMAN_TELEPORT");
+        aliases(SOUND_ALIASES, "BLOCK_PORTAL_TRAVEL", "PORTAL_TRAVEL");
+        aliases(SOUND_ALIASES, "ENTITY_EXPERIENCE_ORB_PICKUP", "ORB_PICKUP");
+    }
+
+    // Register names that all refer to the same effect
+    private static void aliases(Map<String, List<String>> table, String... names) {
+        List<String> group = Collections.unmodifiableList(Arrays.asList(names));
+        for (String name : names) {
+            table.put(name, group);
+        }
     }
 
     /**
@@ -106,59 +148,127 @@ public class VersionCompatibility {
         return null;
     }
 
+    /**
+     * Resolve a particle name (including names from other versions) to a reusable handle
+     * Resolution happens once per name; unresolvable particles are logged once and
+     * return a disabled handle whose spawn calls do nothing
+     */
+    public static ResolvedParticle resolveParticle(String particleType) {
+        return PARTICLES.computeIfAbsent(particleType.toUpperCase(), name -> {
+            Particle particle = resolveEnum(Particle.class, candidates(name, PARTICLE_ALIASES));
+            if (particle == null) {
+                logUnresolved("particle", name);
+            }
+            return new ResolvedParticle(particle);
+        });
+    }
+
+    /**
+     * Resolve a sound name (including names from other versions) to a reusable handle
+     * Portal/enderman sounds fall back to the enderman teleport sound
+     */
+    public static ResolvedSound resolveSound(String soundName) {
+        return SOUNDS.computeIfAbsent(soundName.toUpperCase().replace(".", "_"), name -> {
+            List<String> candidates = candidates(name, SOUND_ALIASES);
+            if (name.contains("PORTAL") || name.contains("ENDERMAN")) {
+                candidates.addAll(candidates("ENTITY_ENDERMAN_TELEPORT", SOUND_ALIASES));
+            }
+
+            Sound sound = resolveEnum(Sound.class, candidates);
+            if (sound == null) {
+                logUnresolved("sound", name);
+            }
+            return new ResolvedSound(sound);
+        });
+    }
+
     /**
      * Play particle effect compatible with all versions
+     * Prefer holding a {@link #resolveParticle(String)} handle on hot paths
      */
     public static void spawnParticle(Location location, String particleType, int count,
                                     double offsetX, double offsetY, double offsetZ, double speed) {
-        if (location == null || location.getWorld() == null) return;
+        resolveParticle(particleType).spawn(location, count, offsetX, offsetY, offsetZ, speed);
+    }
 
-        try {
-            // Use Bukkit's native particle system
-            Particle particle = Particle.valueOf(particleType.toUpperCase());
-            location.getWorld().spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, speed);
-        } catch (IllegalArgumentException e) {
-            // Particle type not available in this version
-            // Try alternative particle names for older versions
-            String alternativeName = particleType;
-            if (particleType.equals("WITCH") && !isPostFlattening()) {
-                alternativeName = "SPELL_WITCH";
-            } else if (particleType.equals("SPELL_WITCH") && isPostFlattening()) {
-                alternativeName = "WITCH";
+    /**
+     * Play sound compatible with all versions
+     * Prefer holding a {@link #resolveSound(String)} handle on hot paths
+     */
+    public static void playSound(Location location, String soundName, float volume, float pitch) {
+        resolveSound(soundName).play(location, volume, pitch);
+    }
+
+    private static List<String> candidates(String name, Map<String, List<String>> aliases) {
+        List<String> candidates = new ArrayList<>();
+        candidates.add(name);
+        for (String alias : aliases.getOrDefault(name, Collections.emptyList())) {
+            if (!candidates.contains(alias)) {
+                candidates.add(alias);
             }
+        }
+        return candidates;
+    }
 
-            if (!alternativeName.equals(particleType)) {
-                try {
-                    Particle particle = Particle.valueOf(alternativeName.toUpperCase());
-                    location.getWorld().spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, speed);
-                } catch (IllegalArgumentException ignored) {
-                    // Alternative also not available
-                }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> T resolveEnum(Class<T> type, List<String> names) {
+        for (String name : names) {
+            try {
+                return (T) Enum.valueOf((Class) type, name);
+            } catch (IllegalArgumentException ignored) {
+                // Not present in this version; try the next alias
             }
-        } catch (Exception e) {
-            // Other error, ignore
+        }
+        return null;
+    }
+
+    private static void logUnresolved(String kind, String name) {
+        Portaltoexit plugin = Portaltoexit.getInstance();
+        String message = "Unknown " + kind + " '" + name + "' on this server version; the effect is disabled";
+        if (plugin != null) {
+            plugin.getLogger().warning(message);
+        } else {
+            Bukkit.getLogger().warning(message);
         }
     }
 
     /**
-     * Play sound compatible with all versions
+     * A particle resolved for the running server version
      */
-    public static void playSound(Location location, String soundName, float volume, float pitch) {
-        if (location == null || location.getWorld() == null) return;
+    public static final class ResolvedParticle {
+        private final Particle particle;
 
-        try {
-            // Direct sound playing using Bukkit API
-            Sound sound = Sound.valueOf(soundName.toUpperCase().replace(".", "_"));
+        private ResolvedParticle(Particle particle) {
+            this.particle = particle;
+        }
+
+        public boolean isAvailable() {
+            return particle != null;
+        }
+
+        public void spawn(Location location, int count, double offsetX, double offsetY, double offsetZ, double speed) {
+            if (particle == null || location == null || location.getWorld() == null) return;
+            location.getWorld().spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, speed);
+        }
+    }
+
+    /**
+     * A sound resolved for the running server version
+     */
+    public static final class ResolvedSound {
+        private final Sound sound;
+
+        private ResolvedSound(Sound sound) {
+            this.sound = sound;
+        }
+
+        public boolean isAvailable() {
+            return sound != null;
+        }
+
+        public void play(Location location, float volume, float pitch) {
+            if (sound == null || location == null || location.getWorld() == null) return;
             location.getWorld().playSound(location, sound, volume, pitch);
-        } catch (Exception e) {
-            // Sound not available in this version
-            // Try some common fallbacks
-            if (soundName.contains("PORTAL") || soundName.contains("ENDERMAN")) {
-                try {
-                    Sound fallback = Sound.ENTITY_ENDERMAN_TELEPORT;
-                    location.getWorld().playSound(location, fallback, volume, pitch);
-                } catch (Exception ignored) {}
-            }
         }
     }
 
@@ -222,6 +332,56 @@ public class VersionCompatibility {
         }
     }
 
+    /**
+     * Check whether chunks can be loaded without blocking the main thread (Paper's getChunkAtAsync)
+     */
+    public static boolean hasAsyncChunkLoading() {
+        return GET_CHUNK_AT_ASYNC != null;
+    }
+
+    /**
+     * Load a chunk, asynchronously where the server supports it
+     * Elsewhere the chunk is loaded synchronously and the future is already complete
+     * Must be called on the main thread; the future completes on the main thread
+     */
+    @SuppressWarnings("unchecked")
+    public static CompletableFuture<Chunk> getChunkAtAsync(World world, int chunkX, int chunkZ) {
+        if (GET_CHUNK_AT_ASYNC != null) {
+            try {
+                return (CompletableFuture<Chunk>) GET_CHUNK_AT_ASYNC.invoke(world, chunkX, chunkZ);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                // Fall back to a synchronous load
+            }
+        }
+        return CompletableFuture.completedFuture(world.getChunkAt(chunkX, chunkZ));
+    }
+
+    /**
+     * Teleport an entity, letting the server load the destination asynchronously where supported (Paper)
+     * Elsewhere the teleport happens synchronously and the future is already complete
+     * Must be called on the main thread; the future completes on the main thread
+     * @return Future of whether the teleport happened (false if cancelled)
+     */
+    @SuppressWarnings("unchecked")
+    public static CompletableFuture<Boolean> teleportAsync(Entity entity, Location location) {
+        if (TELEPORT_ASYNC != null) {
+            try {
+                return (CompletableFuture<Boolean>) TELEPORT_ASYNC.invoke(entity, location);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                // Fall back to a synchronous teleport
+            }
+        }
+        return CompletableFuture.completedFuture(entity.teleport(location));
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
     /**
      * Check if running on Spigot
      */